@@ -0,0 +1,95 @@
+package project.OnlineTrainingProgram.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import project.OnlineTrainingProgram.OnlineTrainingProgramApplication;
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+import project.OnlineTrainingProgram.Service.UserTrainingAllocationService;
+
+// Enrollment through UserTrainingAllocationService against H2 in PostgreSQL mode, seeded with
+// `users` users, `programs` programs and SEEDED_PROGRAMS allocations per user.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnrollmentBenchmark {
+
+    // every user starts out enrolled in programs 1..SEEDED_PROGRAMS
+    private static final int SEEDED_PROGRAMS = 3;
+
+    @Param({"10000"})
+    private int users;
+
+    @Param({"200"})
+    private int programs;
+
+    private ConfigurableApplicationContext context;
+    private UserTrainingAllocationService allocationService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OnlineTrainingProgramApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+                            "spring.jpa.show-sql=false",
+                            "app.console.enabled=false",
+                            "logging.level.root=WARN")
+                .run();
+        allocationService = context.getBean(UserTrainingAllocationService.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("INSERT INTO users (name, email, password, phone_no, role) " +
+                    "SELECT 'user' || r.n, 'user' || r.n || '@bench.local', 'secret', '9000000000', 'USER' FROM SYSTEM_RANGE(1, ?) AS r(n)", users);
+        jdbc.update("INSERT INTO training_program (program_name, description, price, status) " +
+                    "SELECT 'program' || r.n, 'description', 499, 'ACTIVE' FROM SYSTEM_RANGE(1, ?) AS r(n)", programs);
+        jdbc.update("INSERT INTO user_program_allocation (user_id, program_id, allocation_date) " +
+                    "SELECT u.user_id, p.program_id, CURRENT_DATE FROM users u CROSS JOIN training_program p WHERE p.program_id <= ?",
+                    SEEDED_PROGRAMS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // a (user, program) pair that is not enrolled yet: walks programs SEEDED_PROGRAMS+1.. for every user in turn
+    @Benchmark
+    public EnrollmentResult enrollNew() {
+        int n = next++;
+        int userId = 1 + n % users;
+        int programId = SEEDED_PROGRAMS + 1 + (n / users) % (programs - SEEDED_PROGRAMS);
+        return allocationService.enroll(userId, programId, null);
+    }
+
+    @Benchmark
+    public EnrollmentResult enrollDuplicate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return allocationService.enroll(1 + random.nextInt(users), 1 + random.nextInt(SEEDED_PROGRAMS), null);
+    }
+
+    @Benchmark
+    public EnrollmentResult enrollUnknownUser() {
+        return allocationService.enroll(users + 1, 1 + ThreadLocalRandom.current().nextInt(programs), null);
+    }
+}
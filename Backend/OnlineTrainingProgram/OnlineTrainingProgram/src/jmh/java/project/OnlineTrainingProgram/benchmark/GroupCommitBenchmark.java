@@ -0,0 +1,92 @@
+package project.OnlineTrainingProgram.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import project.OnlineTrainingProgram.OnlineTrainingProgramApplication;
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+import project.OnlineTrainingProgram.Service.EnrollmentPipeline;
+import project.OnlineTrainingProgram.Service.UserTrainingAllocationService;
+
+// New enrollments from many concurrent callers: one transaction each (direct) versus queued and group-committed
+// by EnrollmentPipeline (pipelined). Throughput is enrollments per second across all threads.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class GroupCommitBenchmark {
+
+    @Param({"20000"})
+    private int users;
+
+    @Param({"500"})
+    private int programs;
+
+    private ConfigurableApplicationContext context;
+    private UserTrainingAllocationService allocationService;
+    private EnrollmentPipeline pipeline;
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OnlineTrainingProgramApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:groupcommit;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+                            "spring.jpa.show-sql=false",
+                            "app.console.enabled=false",
+                            "app.enroll-pipeline.enabled=true",
+                            "logging.level.root=WARN")
+                .run();
+        allocationService = context.getBean(UserTrainingAllocationService.class);
+        pipeline = context.getBean(EnrollmentPipeline.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("INSERT INTO users (name, email, password, phone_no, role) " +
+                    "SELECT 'user' || r.n, 'user' || r.n || '@bench.local', 'secret', '9000000000', 'USER' FROM SYSTEM_RANGE(1, ?) AS r(n)", users);
+        jdbc.update("INSERT INTO training_program (program_name, description, price, status) " +
+                    "SELECT 'program' || r.n, 'description', 499, 'ACTIVE' FROM SYSTEM_RANGE(1, ?) AS r(n)", programs);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public EnrollmentResult direct() {
+        int n = next.getAndIncrement();
+        return allocationService.enroll(1 + n % users, 1 + (n / users) % programs, null);
+    }
+
+    // a full queue is retried like a client honouring Retry-After would, just without the wait
+    @Benchmark
+    public EnrollmentResult pipelined() throws Exception {
+        int n = next.getAndIncrement();
+        while (true) {
+            var pending = pipeline.submit(1 + n % users, 1 + (n / users) % programs);
+            if (pending != null) return pending.get();
+            Thread.onSpinWait();
+        }
+    }
+}
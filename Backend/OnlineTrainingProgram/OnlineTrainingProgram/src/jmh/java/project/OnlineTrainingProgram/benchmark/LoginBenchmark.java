@@ -0,0 +1,117 @@
+package project.OnlineTrainingProgram.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import project.OnlineTrainingProgram.OnlineTrainingProgramApplication;
+import project.OnlineTrainingProgram.Config.PasswordHasher;
+import project.OnlineTrainingProgram.Model.UserModel;
+import project.OnlineTrainingProgram.Service.UserService;
+
+// Login throughput from 16 threads, a `failures` share of them with a wrong password:
+// - plainText: the old path, a plain text compare after the lookup plus the second "fallback" lookup on every failure
+// - bcryptOnCaller: one lookup, BCrypt checked on the request thread itself
+// - bcryptOnPool: UserService.authenticate, one lookup with the BCrypt check on PasswordHasher's bounded pool
+// The two BCrypt variants cost about the same per login; the pool's point is that the CPU they take is capped
+// (app.password.threads) and a storm is turned away at the queue instead of occupying every request thread.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(16)
+@Fork(1)
+public class LoginBenchmark {
+
+    @Param({"10"})
+    private int bcryptCost;
+
+    @Param({"0.2"})
+    private double failures;
+
+    @Param({"1000"})
+    private int users;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private JdbcTemplate jdbc;
+    private BCryptPasswordEncoder encoder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OnlineTrainingProgramApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:login;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+                            "spring.jpa.show-sql=false",
+                            "app.console.enabled=false",
+                            "app.password.bcrypt-cost=" + bcryptCost,
+                            // every benchmark thread may wait in the queue; saturation is not what is measured here
+                            "app.password.queue-capacity=64",
+                            "logging.level.root=WARN")
+                .run();
+        userService = context.getBean(UserService.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        encoder = new BCryptPasswordEncoder(bcryptCost);
+        String hash = context.getBean(PasswordHasher.class).hash("secret");
+        // hashed users for the BCrypt paths, plain text twins (same ids + users) for the old path
+        jdbc.update("INSERT INTO users (name, email, password, phone_no, role) " +
+                    "SELECT 'user' || r.n, 'user' || r.n || '@bench.local', ?, '9000000000', 'USER' FROM SYSTEM_RANGE(1, ?) AS r(n)", hash, users);
+        jdbc.update("INSERT INTO users (name, email, password, phone_no, role) " +
+                    "SELECT 'plain' || r.n, 'plain' || r.n || '@bench.local', 'secret', '9000000000', 'USER' FROM SYSTEM_RANGE(1, ?) AS r(n)", users);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object plainText() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String email = "plain" + (1 + random.nextInt(users)) + "@bench.local";
+        String password = password(random);
+        List<String> stored = jdbc.queryForList("SELECT password FROM users WHERE email = ?", String.class, email);
+        if (!stored.isEmpty() && stored.get(0).equals(password)) return stored;
+        // the removed fallback: look the user up again and compare once more
+        return jdbc.queryForList("SELECT password FROM users WHERE email = ?", String.class, email);
+    }
+
+    @Benchmark
+    public boolean bcryptOnCaller() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> stored = jdbc.queryForList("SELECT password FROM users WHERE email = ?", String.class,
+                                                "user" + (1 + random.nextInt(users)) + "@bench.local");
+        return !stored.isEmpty() && encoder.matches(password(random), stored.get(0));
+    }
+
+    @Benchmark
+    public UserModel bcryptOnPool() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return userService.authenticate("user" + (1 + random.nextInt(users)) + "@bench.local", password(random));
+    }
+
+    private String password(ThreadLocalRandom random) {
+        return random.nextDouble() < failures ? "wrong" : "secret";
+    }
+}
@@ -0,0 +1,67 @@
+package project.OnlineTrainingProgram.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import project.OnlineTrainingProgram.Entity.TrainingProgram;
+import project.OnlineTrainingProgram.Entity.User;
+import project.OnlineTrainingProgram.Model.TrainingModel;
+import project.OnlineTrainingProgram.Model.UserModel;
+
+// Row mapping cost of the constructor projections the list queries use (UserDAO's user list, TrainingDAO's catalog).
+// Neither DAO maps loaded entities any more, so there is no entity -> model path left to compare against.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"1000"})
+    private int rows;
+
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        users = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            User user = new User();
+            user.setUserId(i);
+            user.setName("user" + i);
+            user.setEmail("user" + i + "@bench.local");
+            user.setPhoneNo("9000000000");
+            user.setRole(User.Role.USER);
+            users.add(user);
+        }
+    }
+
+    @Benchmark
+    public void userProjection(Blackhole bh) {
+        for (User user : users) {
+            bh.consume(new UserModel(user.getUserId(), user.getName(), user.getEmail(), user.getPhoneNo(), user.getRole(), 3L));
+        }
+    }
+
+    @Benchmark
+    public void trainingProjection(Blackhole bh) {
+        for (int i = 1; i <= rows; i++) {
+            bh.consume(new TrainingModel(i, "program" + i, "description", 499.0, TrainingProgram.ProgramStatus.ACTIVE, 12L, null));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package project.OnlineTrainingProgram.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.stereotype.Repository;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+import project.OnlineTrainingProgram.Config.MethodMetricsInterceptor;
+
+// Cost of MethodMetricsInterceptor per call: the same class-based proxy with and without the timer,
+// recording into a Prometheus registry with percentile histograms on, as configured in application.properties.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @Repository
+    public static class Target {
+        public int lookup(int id) {
+            return id * 31;
+        }
+    }
+
+    private Target direct;
+    private Target proxied;
+    private Target timed;
+    private int id;
+
+    @Setup
+    public void setUp() {
+        direct = new Target();
+        proxied = proxy((MethodInterceptor) invocation -> invocation.proceed());
+
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id meterId, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+            }
+        });
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("meterRegistry", registry);
+        timed = proxy(new MethodMetricsInterceptor(beans.getBeanProvider(MeterRegistry.class)));
+    }
+
+    private static Target proxy(MethodInterceptor interceptor) {
+        ProxyFactory factory = new ProxyFactory(new Target());
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        return (Target) factory.getProxy();
+    }
+
+    @Benchmark
+    public int direct() {
+        return direct.lookup(id++);
+    }
+
+    @Benchmark
+    public int proxyOnly() {
+        return proxied.lookup(id++);
+    }
+
+    @Benchmark
+    public int proxyWithTimer() {
+        return timed.lookup(id++);
+    }
+}
@@ -0,0 +1,131 @@
+package project.OnlineTrainingProgram.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import project.OnlineTrainingProgram.OnlineTrainingProgramApplication;
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+import project.OnlineTrainingProgram.Model.TrainingModel;
+import project.OnlineTrainingProgram.Service.SeatLedger;
+import project.OnlineTrainingProgram.Service.TrainingService;
+import project.OnlineTrainingProgram.Service.UserTrainingAllocationService;
+
+// SeatLedger under contention from 64 threads:
+// - reserveHot / reserveSpread: take and give back a seat of one program, or of one of `programs` programs
+// - reserveSoldOut: turned away by a full program
+// - enrollScarce: real enrollments of distinct users into one program with far fewer seats than requests;
+//   the trial fails if the program ends up with more allocations than seats
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class SeatContentionBenchmark {
+
+    @Param({"64"})
+    private int programs;
+
+    @Param({"50000"})
+    private int users;
+
+    @Param({"1000"})
+    private int scarceSeats;
+
+    private ConfigurableApplicationContext context;
+    private SeatLedger ledger;
+    private UserTrainingAllocationService allocationService;
+    private JdbcTemplate jdbc;
+    private int[] programIds;
+    private int soldOutProgram;
+    private int scarceProgram;
+    private final AtomicInteger nextUser = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OnlineTrainingProgramApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:seats;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+                            "spring.jpa.show-sql=false",
+                            "app.console.enabled=false",
+                            "logging.level.root=WARN")
+                .run();
+        ledger = context.getBean(SeatLedger.class);
+        allocationService = context.getBean(UserTrainingAllocationService.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("INSERT INTO users (name, email, password, phone_no, role) " +
+                    "SELECT 'user' || r.n, 'user' || r.n || '@bench.local', 'secret', '9000000000', 'USER' FROM SYSTEM_RANGE(1, ?) AS r(n)", users);
+        programIds = new int[programs];
+        for (int i = 0; i < programs; i++) {
+            programIds[i] = program("hot" + i, Integer.MAX_VALUE / 2);
+        }
+        soldOutProgram = program("sold out", 1);
+        ledger.tryReserve(soldOutProgram);
+        scarceProgram = program("scarce", scarceSeats);
+    }
+
+    private int program(String name, int capacity) {
+        TrainingModel program = new TrainingModel();
+        program.setProgramName(name);
+        program.setDescription("description");
+        program.setPrice(499);
+        program.setCapacity(capacity);
+        context.getBean(TrainingService.class).saveTraining(program);
+        return program.getProgramId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        int allocated = jdbc.queryForObject("SELECT COUNT(*) FROM user_program_allocation WHERE program_id = ?", Integer.class, scarceProgram);
+        context.close();
+        if (allocated > scarceSeats) {
+            throw new IllegalStateException("Oversold: " + allocated + " allocations for " + scarceSeats + " seats");
+        }
+    }
+
+    @Benchmark
+    public boolean reserveHot() {
+        boolean reserved = ledger.tryReserve(programIds[0]);
+        ledger.cancel(programIds[0], 1);
+        return reserved;
+    }
+
+    @Benchmark
+    public boolean reserveSpread() {
+        int programId = programIds[ThreadLocalRandom.current().nextInt(programs)];
+        boolean reserved = ledger.tryReserve(programId);
+        ledger.cancel(programId, 1);
+        return reserved;
+    }
+
+    @Benchmark
+    public boolean reserveSoldOut() {
+        return ledger.tryReserve(soldOutProgram);
+    }
+
+    @Benchmark
+    public EnrollmentResult enrollScarce() {
+        return allocationService.enroll(1 + nextUser.getAndIncrement() % users, scarceProgram, null);
+    }
+}
@@ -0,0 +1,83 @@
+package project.OnlineTrainingProgram.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import project.OnlineTrainingProgram.Entity.TrainingProgram;
+import project.OnlineTrainingProgram.Entity.User;
+import project.OnlineTrainingProgram.Model.TrainingModel;
+import project.OnlineTrainingProgram.Model.UserModel;
+
+// Jackson cost of the response bodies: model lists and the Map.of envelopes built by the controllers.
+// The ObjectMapper is configured the way Spring Boot builds its own.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"50", "1000"})
+    private int trainings;
+
+    @Param({"10000"})
+    private int users;
+
+    private ObjectMapper objectMapper;
+    private List<TrainingModel> trainingList;
+    private List<UserModel> userList;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        trainingList = new ArrayList<>(trainings);
+        for (int i = 1; i <= trainings; i++) {
+            trainingList.add(new TrainingModel(i, "Program " + i, "A realistic two sentence description. It is this long.",
+                                               499.0, TrainingProgram.ProgramStatus.ACTIVE, 40L, null));
+        }
+        userList = new ArrayList<>(users);
+        for (int i = 1; i <= users; i++) {
+            userList.add(new UserModel(i, "User " + i, "user" + i + "@bench.local", "9000000000", User.Role.USER, 3L));
+        }
+    }
+
+    @Benchmark
+    public byte[] trainingList() throws Exception {
+        return objectMapper.writeValueAsBytes(trainingList);
+    }
+
+    @Benchmark
+    public byte[] userList() throws Exception {
+        return objectMapper.writeValueAsBytes(userList);
+    }
+
+    // UserDashBoardController catalog envelope
+    @Benchmark
+    public byte[] dashboardCatalogBody() throws Exception {
+        return objectMapper.writeValueAsBytes(Map.of("success", true, "trainings", trainingList));
+    }
+
+    // the small status bodies most AdminController endpoints return
+    @Benchmark
+    public byte[] adminMessageBody() throws Exception {
+        return objectMapper.writeValueAsBytes(Map.of("success", true, "message", "Program allocated to user successfully", "programId", 42));
+    }
+}
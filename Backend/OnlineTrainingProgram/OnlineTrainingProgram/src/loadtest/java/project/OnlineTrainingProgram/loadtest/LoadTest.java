@@ -0,0 +1,307 @@
+package project.OnlineTrainingProgram.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import project.OnlineTrainingProgram.OnlineTrainingProgramApplication;
+import project.OnlineTrainingProgram.Config.PasswordHasher;
+
+/**
+ * End-to-end HTTP load driver.
+ * Boots the application on an in-memory H2 database (PostgreSQL mode), seeds it, then runs `clients` concurrent
+ * clients (virtual threads when the JVM has them) that replay a weighted mix of requests for `duration`.
+ * Prints throughput and p50/p99/p99.9 latency per endpoint and writes one .hgrm percentile file per endpoint.
+ *
+ * Options (name=value, optionally prefixed with --): clients=200 duration=30s warmup=5s users=2000 programs=50
+ * mix=login:10,catalog:60,enroll:15,cancel:10,report:5 etag=true out=target/loadtest
+ * target=http://host:port  runs against an already running server instead (its users/programs must already exist,
+ *                          with ids 1..users / 1..programs and password "secret" for user{n}@load.test)
+ * threads=platform|virtual  request threads of the booted server (spring.threads.virtual.enabled); default platform
+ * threads=compare           runs the same load against a platform-thread server, then a virtual-thread one, and
+ *                           prints both side by side, e.g. clients=5000 threads=compare
+ */
+public class LoadTest {
+
+    enum Endpoint { LOGIN, CATALOG, ENROLL, CANCEL, REPORT }
+
+    // response latencies are recorded in microseconds, up to one minute
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, String> options;
+    private final int users;
+    private final int programs;
+    private final boolean etag;
+    private final Endpoint[] wheel;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+    private String baseUrl;
+    // overall results of the last run, for threads=compare
+    private Histogram total;
+    private long totalErrors;
+    private double measuredSeconds;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) arg = arg.substring(2);
+            if (!arg.contains("=")) throw new IllegalArgumentException("Expected name=value, got " + arg);
+            options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if ("compare".equalsIgnoreCase(options.get("threads"))) {
+            compare(options);
+        } else {
+            new LoadTest(options).run();
+        }
+    }
+
+    // Same workload against both request-thread models, each on a fresh server and database
+    private static void compare(Map<String, String> options) throws Exception {
+        if (options.containsKey("target")) throw new IllegalArgumentException("threads=compare boots its own servers; drop target");
+        if (Runtime.version().feature() < 21) {
+            System.out.println("Java " + Runtime.version().feature() + " has no virtual threads: both runs will use platform threads");
+        }
+        String out = options.getOrDefault("out", "target/loadtest");
+        Map<String, Histogram> totals = new LinkedHashMap<>();
+        Map<String, Long> totalErrors = new HashMap<>();
+        Map<String, Double> seconds = new HashMap<>();
+        for (String threads : List.of("platform", "virtual")) {
+            Map<String, String> runOptions = new HashMap<>(options);
+            runOptions.put("threads", threads);
+            runOptions.put("out", out + "/" + threads);
+            System.out.printf("%n== %s threads ==%n", threads);
+            LoadTest test = new LoadTest(runOptions);
+            test.run();
+            totals.put(threads, test.total);
+            totalErrors.put(threads, test.totalErrors);
+            seconds.put(threads, test.measuredSeconds);
+        }
+        System.out.printf("%n%-8s %10s %10s %10s %10s %10s %10s %8s%n", "threads", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        totals.forEach((threads, h) -> print(System.out, threads, h, totalErrors.get(threads), seconds.get(threads)));
+    }
+
+    LoadTest(Map<String, String> options) {
+        this.options = options;
+        this.users = Integer.parseInt(options.getOrDefault("users", "2000"));
+        this.programs = Integer.parseInt(options.getOrDefault("programs", "50"));
+        this.etag = Boolean.parseBoolean(options.getOrDefault("etag", "true"));
+        this.wheel = parseMix(options.getOrDefault("mix", "login:10,catalog:60,enroll:15,cancel:10,report:5"));
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new Recorder(MAX_LATENCY_MICROS, 3));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    void run() throws Exception {
+        ConfigurableApplicationContext context = null;
+        if (options.containsKey("target")) {
+            baseUrl = options.get("target");
+        } else {
+            context = boot();
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            int clients = Integer.parseInt(options.getOrDefault("clients", "200"));
+            Duration warmup = parseDuration(options.getOrDefault("warmup", "5s"));
+            Duration duration = parseDuration(options.getOrDefault("duration", "30s"));
+            System.out.printf("Load test against %s: %d clients, %s warmup, %s measured%n", baseUrl, clients, warmup, duration);
+
+            long warmupEnd = System.nanoTime() + warmup.toNanos();
+            long end = warmupEnd + duration.toNanos();
+            ExecutorService executor = clientExecutor();
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> client(end));
+            }
+            sleepUntil(warmupEnd);
+            // throw away what was recorded while the JIT and connection pools warmed up
+            for (Endpoint endpoint : Endpoint.values()) {
+                recorders.get(endpoint).reset();
+                errors.get(endpoint).reset();
+            }
+            long measuredStart = System.nanoTime();
+            executor.shutdown();
+            executor.awaitTermination(duration.toMillis() + 60_000, TimeUnit.MILLISECONDS);
+            measuredSeconds = (System.nanoTime() - measuredStart) / 1e9;
+            report(measuredSeconds);
+        } finally {
+            if (context != null) context.close();
+        }
+    }
+
+    // Virtual threads on Java 21+, looked up reflectively because the project compiles for Java 17
+    private static ExecutorService clientExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Virtual threads not available on this JVM, using platform threads");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private ConfigurableApplicationContext boot() {
+        String threads = options.getOrDefault("threads", "platform");
+        if (!threads.equals("platform") && !threads.equals("virtual")) {
+            throw new IllegalArgumentException("threads must be platform, virtual or compare");
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(OnlineTrainingProgramApplication.class)
+                .properties("server.port=0",
+                            "spring.datasource.url=jdbc:h2:mem:loadtest-" + threads + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+                            "spring.threads.virtual.enabled=" + threads.equals("virtual"),
+                            "spring.jpa.show-sql=false",
+                            "app.console.enabled=false",
+                            "logging.level.root=WARN")
+                .run();
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        // one real BCrypt hash shared by everyone, so logins pay the same verification cost as in production
+        String secret = context.getBean(PasswordHasher.class).hash("secret");
+        jdbc.update("INSERT INTO users (name, email, password, phone_no, role) " +
+                    "SELECT 'user' || r.n, 'user' || r.n || '@load.test', ?, '9000000000', 'USER' FROM SYSTEM_RANGE(1, ?) AS r(n)", secret, users);
+        jdbc.update("INSERT INTO training_program (program_name, description, price, status) " +
+                    "SELECT 'program' || r.n, 'description', 499, 'ACTIVE' FROM SYSTEM_RANGE(1, ?) AS r(n)", programs);
+        // every user starts with a few enrollments so reports and cancels have something to work on
+        jdbc.update("INSERT INTO user_program_allocation (user_id, program_id, allocation_date) " +
+                    "SELECT u.user_id, p.program_id, CURRENT_DATE FROM users u JOIN training_program p " +
+                    "ON MOD(u.user_id + p.program_id, ?) < 3", programs);
+        return context;
+    }
+
+    private void client(long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String catalogEtag = null;   // replayed like a browser would, so catalog polls mostly come back 304
+        while (System.nanoTime() < end) {
+            Endpoint endpoint = wheel[random.nextInt(wheel.length)];
+            HttpRequest request = request(endpoint, random, catalogEtag);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                recorders.get(endpoint).recordValue(Math.min(MAX_LATENCY_MICROS, (System.nanoTime() - start) / 1000));
+                // 4xx are normal outcomes here (duplicate enrollment, nothing to cancel); 5xx are failures
+                if (response.statusCode() >= 500) errors.get(endpoint).increment();
+                if (endpoint == Endpoint.CATALOG && etag) {
+                    catalogEtag = response.headers().firstValue("ETag").orElse(catalogEtag);
+                }
+            } catch (IOException e) {
+                errors.get(endpoint).increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private HttpRequest request(Endpoint endpoint, ThreadLocalRandom random, String catalogEtag) {
+        int userId = 1 + random.nextInt(users);
+        int programId = 1 + random.nextInt(programs);
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30));
+        switch (endpoint) {
+            case LOGIN:
+                return json(builder.uri(uri("/api/login")), "POST",
+                            "{\"email\":\"user" + userId + "@load.test\",\"password\":\"secret\"}");
+            case CATALOG:
+                builder.uri(uri("/api/user/trainings")).header("Accept-Encoding", "gzip");
+                if (catalogEtag != null) builder.header("If-None-Match", catalogEtag);
+                return builder.GET().build();
+            case ENROLL:
+                return json(builder.uri(uri("/api/user/enroll")), "POST",
+                            "{\"userId\":\"" + userId + "\",\"trainingId\":\"" + programId + "\"}");
+            case CANCEL:
+                return json(builder.uri(uri("/api/user/cancel-enrollment")), "DELETE",
+                            "{\"userId\":\"" + userId + "\",\"trainingId\":\"" + programId + "\"}");
+            default:
+                return builder.uri(uri("/api/admin/users/allocations/under-allocated?threshold=3&limit=100")).GET().build();
+        }
+    }
+
+    private static HttpRequest json(HttpRequest.Builder builder, String method, String body) {
+        return builder.header("Content-Type", "application/json")
+                      .method(method, HttpRequest.BodyPublishers.ofString(body))
+                      .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private void report(double seconds) throws IOException {
+        Path out = Path.of(options.getOrDefault("out", "target/loadtest"));
+        Files.createDirectories(out);
+        PrintStream console = System.out;
+        console.printf("%n%-8s %10s %10s %10s %10s %10s %10s %8s%n", "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        total = new Histogram(MAX_LATENCY_MICROS, 3);
+        totalErrors = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = recorders.get(endpoint).getIntervalHistogram();
+            long errorCount = errors.get(endpoint).sum();
+            if (histogram.getTotalCount() == 0 && errorCount == 0) continue;
+            total.add(histogram);
+            totalErrors += errorCount;
+            print(console, endpoint.name().toLowerCase(), histogram, errorCount, seconds);
+            try (PrintStream file = new PrintStream(out.resolve(endpoint.name().toLowerCase() + ".hgrm").toFile())) {
+                histogram.outputPercentileDistribution(file, 1000.0);   // values in ms
+            }
+        }
+        print(console, "total", total, totalErrors, seconds);
+        console.println("Percentile distributions written to " + out.toAbsolutePath());
+    }
+
+    private static void print(PrintStream out, String name, Histogram h, long errors, double seconds) {
+        out.printf("%-8s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n", name, h.getTotalCount(), h.getTotalCount() / seconds,
+                   h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(99) / 1000.0,
+                   h.getValueAtPercentile(99.9) / 1000.0, h.getMaxValue() / 1000.0, errors);
+    }
+
+    // weighted mix as a lookup wheel, e.g. catalog:60 puts CATALOG in 60 slots
+    private static Endpoint[] parseMix(String mix) {
+        List<Endpoint> wheel = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            Endpoint endpoint = Endpoint.valueOf(kv[0].trim().toUpperCase());
+            int weight = Integer.parseInt(kv[1].trim());
+            for (int i = 0; i < weight; i++) wheel.add(endpoint);
+        }
+        if (wheel.isEmpty()) throw new IllegalArgumentException("mix must give at least one endpoint a positive weight");
+        return wheel.toArray(new Endpoint[0]);
+    }
+
+    // 30s, 2m or an ISO-8601 duration
+    private static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        if (value.endsWith("s")) return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        if (value.endsWith("m")) return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        return Duration.parse(value);
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package project.OnlineTrainingProgram.Config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// Wraps the DataSource in a BulkheadDataSource (see there). Permits default to the Hikari pool size.
+@Configuration
+@ConditionalOnProperty(name = "app.db.bulkhead.enabled", havingValue = "true", matchIfMissing = true)
+public class DatabaseBulkheadConfig {
+
+    // static: post-processors are created before the rest of the context
+    @Bean
+    public static BeanPostProcessor dataSourceBulkhead(Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof BulkheadDataSource) {
+                    return bean;
+                }
+                int poolSize = env.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+                int permits = env.getProperty("app.db.bulkhead.permits", Integer.class, poolSize);
+                Duration maxWait = DurationStyle.detectAndParse(env.getProperty("app.db.bulkhead.max-wait", "5s"));
+                return new BulkheadDataSource(dataSource, permits, maxWait);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder dataSourceBulkheadMetrics(DataSource dataSource) {
+        return registry -> {
+            BulkheadDataSource bulkhead;
+            try {
+                bulkhead = dataSource.unwrap(BulkheadDataSource.class);
+            } catch (Exception e) {
+                return;
+            }
+            Gauge.builder("app.db.bulkhead.available", bulkhead, BulkheadDataSource::getAvailablePermits)
+                    .description("Free connection permits").register(registry);
+            Gauge.builder("app.db.bulkhead.waiting", bulkhead, BulkheadDataSource::getQueueLength)
+                    .description("Threads queued for a connection permit").register(registry);
+            FunctionCounter.builder("app.db.bulkhead.rejected", bulkhead, BulkheadDataSource::getRejected)
+                    .description("Connection requests that gave up after app.db.bulkhead.max-wait").register(registry);
+        };
+    }
+}
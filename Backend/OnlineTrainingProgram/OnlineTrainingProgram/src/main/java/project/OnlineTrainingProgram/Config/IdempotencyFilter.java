@@ -0,0 +1,203 @@
+package project.OnlineTrainingProgram.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Idempotency-Key support for the endpoints clients retry on timeouts: enroll, cancel-enrollment and allocate-program.
+ * - first request with a key: runs normally, its response is stored (IdempotencyStore)
+ * - same key again: the stored status and body are replayed with Idempotent-Replayed: true, nothing hits the DB
+ * - same key while the first is still running: waits for it (up to app.idempotency.wait-timeout, then 409)
+ * - same key with a different body: 422
+ * 5xx responses are not kept, so a retry after a server error runs again. Requests without the header are untouched.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final Set<String> ENDPOINTS = Set.of(
+            "POST /api/user/enroll",
+            "DELETE /api/user/cancel-enrollment",
+            "POST /api/admin/allocate-program");
+
+    @Autowired
+    private IdempotencyStore store;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.wait-timeout:30s}")
+    private Duration waitTimeout;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(HEADER) == null
+                || !ENDPOINTS.contains(request.getMethod() + " " + request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            error(response, HttpStatus.BAD_REQUEST, HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        // the key is scoped to the endpoint, so one key can't replay an enroll response for a cancel
+        // and, with token auth, to the caller, so two users picking the same key never see each other's response
+        Object principal = request.getAttribute(SessionTokens.PRINCIPAL);
+        String scopedKey = request.getMethod() + " " + request.getRequestURI() + " " + key
+                + (principal != null ? " " + ((SessionTokens.Principal) principal).userId() : "");
+        byte[] fingerprint = sha256(body);
+        IdempotencyStore.Claim claim = store.claim(scopedKey, fingerprint);
+        if (claim == null) {
+            chain.doFilter(new CachedBodyRequest(request, body), response);
+            return;
+        }
+        if (!claim.owner()) {
+            if (!claim.entry().matches(fingerprint)) {
+                error(response, HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used with a different request body");
+                return;
+            }
+            replay(claim.entry(), response);
+            return;
+        }
+
+        ContentCachingResponseWrapper recorded = new ContentCachingResponseWrapper(response);
+        IdempotencyStore.StoredResponse stored = null;
+        try {
+            chain.doFilter(new CachedBodyRequest(request, body), recorded);
+            stored = new IdempotencyStore.StoredResponse(recorded.getStatus(), recorded.getContentType(), recorded.getContentAsByteArray());
+        } finally {
+            if (stored != null && stored.status() < 500) {
+                store.complete(claim.entry(), stored);
+            } else {
+                store.abandon(scopedKey, claim.entry(), stored);
+            }
+            recorded.copyBodyToResponse();
+        }
+    }
+
+    private void replay(IdempotencyStore.Entry entry, HttpServletResponse response) throws IOException {
+        IdempotencyStore.StoredResponse stored;
+        try {
+            stored = entry.response().get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            error(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error(response, HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the original request");
+            return;
+        } catch (ExecutionException e) {
+            error(response, HttpStatus.INTERNAL_SERVER_ERROR, "Server error");
+            return;
+        }
+        if (stored == null || stored.status() >= 500) {
+            // the original attempt failed; this duplicate was already waiting, so tell it to retry rather than replaying a 5xx
+            error(response, HttpStatus.CONFLICT, "The original request with this " + HEADER + " failed, please retry");
+            return;
+        }
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) response.setContentType(stored.contentType());
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void error(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("success", false, "message", message));
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // the body has already been read to fingerprint it, so hand the controller a copy
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package project.OnlineTrainingProgram.Config;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory, expiring record of the responses sent for Idempotency-Key requests (see IdempotencyFilter).
+ * The first request with a key claims it and later completes it with its response; duplicates get the same
+ * future, so an in-flight duplicate simply waits for the first execution instead of running again.
+ * Entries expire app.idempotency.ttl after they were claimed; expired ones are swept lazily as new keys come in.
+ * Keys are per node: behind a load balancer, retries have to reach the same instance to be deduplicated.
+ */
+@Component
+public class IdempotencyStore {
+
+    // what gets replayed for a duplicate
+    public record StoredResponse(int status, String contentType, byte[] body) {}
+
+    public static final class Entry {
+        private final byte[] fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        private Entry(byte[] fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        // false when the key was first used with a different request body
+        public boolean matches(byte[] fingerprint) {
+            return Arrays.equals(this.fingerprint, fingerprint);
+        }
+
+        public CompletableFuture<StoredResponse> response() {
+            return response;
+        }
+    }
+
+    // the outcome of claim(): either this caller owns the key and must run the request, or it is a duplicate
+    public record Claim(Entry entry, boolean owner) {}
+
+    private static final int SWEEP_EVERY = 1000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger claimsSinceSweep = new AtomicInteger();
+    private final long ttlNanos;
+    private final int maxKeys;
+
+    public IdempotencyStore(@Value("${app.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${app.idempotency.max-keys:100000}") int maxKeys) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxKeys = maxKeys;
+    }
+
+    // Returns null when the store is full of live keys; the request then just runs without deduplication
+    public Claim claim(String key, byte[] fingerprint) {
+        long now = System.nanoTime();
+        if (claimsSinceSweep.incrementAndGet() >= SWEEP_EVERY || entries.size() >= maxKeys) {
+            claimsSinceSweep.set(0);
+            entries.values().removeIf(e -> e.expiresAt - now < 0);
+        }
+        Entry fresh = new Entry(fingerprint, now + ttlNanos);
+        while (true) {
+            Entry existing = entries.get(key);
+            if (existing != null && existing.expiresAt - now >= 0) {
+                return new Claim(existing, false);
+            }
+            if (existing == null && entries.size() >= maxKeys) {
+                return null;
+            }
+            boolean won = existing == null ? entries.putIfAbsent(key, fresh) == null : entries.replace(key, existing, fresh);
+            if (won) return new Claim(fresh, true);
+        }
+    }
+
+    public void complete(Entry entry, StoredResponse response) {
+        entry.response.complete(response);
+    }
+
+    // the request failed in a way worth retrying (5xx, exception): forget the key so the next attempt runs for real,
+    // and release anyone waiting on it with the same failure
+    public void abandon(String key, Entry entry, StoredResponse response) {
+        entries.remove(key, entry);
+        entry.response.complete(response);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,88 @@
+package project.OnlineTrainingProgram.Config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every public DAO and service method as app.method.calls{layer, class, method, exception}
+ * and counts failures as app.method.errors{layer, class, method, exception}.
+ * The success timer of each method is looked up once and cached, so the hot path is two nanoTime reads
+ * and one histogram update.
+ */
+public class MethodMetricsInterceptor implements MethodInterceptor {
+
+    public static final String CALLS = "app.method.calls";
+    public static final String ERRORS = "app.method.errors";
+
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private volatile MeterRegistry registry;
+    private final Map<Method, Timer> successTimers = new ConcurrentHashMap<>();
+
+    public MethodMetricsInterceptor(ObjectProvider<MeterRegistry> registryProvider) {
+        this.registryProvider = registryProvider;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MeterRegistry meters = registry();
+        if (meters == null) return invocation.proceed();
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            successTimers.computeIfAbsent(invocation.getMethod(), m -> timer(meters, invocation, "none"))
+                         .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable t) {
+            String exception = t.getClass().getSimpleName();
+            timer(meters, invocation, exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Counter.builder(ERRORS)
+                   .tags("layer", layer(invocation), "class", className(invocation),
+                         "method", invocation.getMethod().getName(), "exception", exception)
+                   .register(meters)
+                   .increment();
+            throw t;
+        }
+    }
+
+    // resolved on first use: the registry must not be created while the proxies are still being set up
+    private MeterRegistry registry() {
+        MeterRegistry meters = registry;
+        if (meters == null) {
+            meters = registryProvider.getIfAvailable();
+            registry = meters;
+        }
+        return meters;
+    }
+
+    private static Timer timer(MeterRegistry meters, MethodInvocation invocation, String exception) {
+        return Timer.builder(CALLS)
+                    .tags("layer", layer(invocation), "class", className(invocation),
+                          "method", invocation.getMethod().getName(), "exception", exception)
+                    .register(meters);
+    }
+
+    private static String layer(MethodInvocation invocation) {
+        return AnnotatedElementUtils.hasAnnotation(targetClass(invocation), Repository.class) ? "dao" : "service";
+    }
+
+    private static String className(MethodInvocation invocation) {
+        return targetClass(invocation).getSimpleName();
+    }
+
+    private static Class<?> targetClass(MethodInvocation invocation) {
+        return invocation.getThis() != null ? AopUtils.getTargetClass(invocation.getThis()) : invocation.getMethod().getDeclaringClass();
+    }
+}
@@ -0,0 +1,34 @@
+package project.OnlineTrainingProgram.Config;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Repository;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Method timers for every @Repository and @Service bean. HTTP handlers are timed by Spring Boot itself
+// (http.server.requests, tagged with the endpoint's uri template).
+@Configuration
+public class MetricsConfig {
+
+    // Registered as an infrastructure advisor so the auto-proxy creator that already applies @Transactional picks it up,
+    // without pulling in AspectJ. Ordered first so the DAO timings include the transaction commit.
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor methodMetricsAdvisor(ObjectProvider<MeterRegistry> meterRegistry) {
+        ComposablePointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(Repository.class, true))
+                .union(new AnnotationMatchingPointcut(Service.class, true));
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new MethodMetricsInterceptor(meterRegistry));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
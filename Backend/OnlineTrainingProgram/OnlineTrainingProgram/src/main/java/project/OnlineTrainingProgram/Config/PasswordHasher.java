@@ -0,0 +1,183 @@
+package project.OnlineTrainingProgram.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * BCrypt hashing and verification on a dedicated pool of app.password.threads threads (default: one per core).
+ * Hashing is deliberately slow CPU work; running it here caps a login storm at those cores, and request threads only
+ * wait for their result instead of burning CPU themselves. Work queues up to app.password.queue-capacity deep; past
+ * that, or after waiting app.password.timeout, calls fail at once with RejectedExecutionException (login answers
+ * 503 with Retry-After) rather than stretching everyone's latency.
+ * A hash made with a cost other than app.password.bcrypt-cost, or a password still stored in plain text, verifies as
+ * MATCH_NEEDS_REHASH so the caller can store a fresh hash while it has the raw password at hand.
+ */
+@Component
+public class PasswordHasher implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHasher.class);
+
+    public enum Verification { MATCH, MATCH_NEEDS_REHASH, NO_MATCH }
+
+    // $2a$, $2b$ or $2y$, a two digit cost, then 22 characters of salt and 31 of hash
+    private static final Pattern BCRYPT = Pattern.compile("\\$2[aby]?\\$\\d\\d\\$[./A-Za-z0-9]{53}");
+
+    private final BCryptPasswordEncoder encoder;
+    private final int cost;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final int threads;
+    private final Counter rejected;
+    // verified against when the email is unknown, so a miss takes as long as a wrong password
+    private final String dummyHash;
+
+    public PasswordHasher(@Value("${app.password.bcrypt-cost:10}") int cost,
+                          @Value("${app.password.threads:0}") int threads,
+                          @Value("${app.password.queue-capacity:64}") int queueCapacity,
+                          @Value("${app.password.timeout:5s}") Duration timeout,
+                          ObjectProvider<MeterRegistry> meterRegistry) {
+        this.encoder = new BCryptPasswordEncoder(cost);
+        this.cost = cost;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.timeout = timeout;
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "password-hasher-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("app.password.queued", executor, e -> e.getQueue().size())
+                    .description("Password hashes waiting for a hasher thread").register(registry);
+            rejected = Counter.builder("app.password.rejected")
+                    .description("Password hashes turned away because the hasher was saturated").register(registry);
+        } else {
+            rejected = null;
+        }
+        this.dummyHash = encoder.encode("not a password");
+    }
+
+    public boolean isHash(String stored) {
+        return stored != null && BCRYPT.matcher(stored).matches();
+    }
+
+    public String hash(String raw) {
+        return run(() -> encoder.encode(raw));
+    }
+
+    // Hashes a batch (an import chunk), at most one task per hasher thread at a time so logins still get a turn
+    public List<String> hashAll(List<String> raw) {
+        List<String> hashes = new ArrayList<>(raw.size());
+        for (int from = 0; from < raw.size(); from += threads) {
+            List<Future<String>> window = new ArrayList<>(threads);
+            for (String password : raw.subList(from, Math.min(from + threads, raw.size()))) {
+                window.add(submit(() -> encoder.encode(password)));
+            }
+            for (Future<String> hash : window) {
+                hashes.add(await(hash));
+            }
+        }
+        return hashes;
+    }
+
+    // `stored` may be null (unknown user): the work is done anyway and the answer is NO_MATCH
+    public Verification verify(String raw, String stored) {
+        return run(() -> {
+            if (stored == null) {
+                encoder.matches(raw, dummyHash);
+                return Verification.NO_MATCH;
+            }
+            if (!isHash(stored)) {
+                // written before passwords were hashed
+                boolean equal = MessageDigest.isEqual(raw.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+                return equal ? Verification.MATCH_NEEDS_REHASH : Verification.NO_MATCH;
+            }
+            if (!encoder.matches(raw, stored)) return Verification.NO_MATCH;
+            // the cost factor was changed (either way) since this hash was made
+            return costOf(stored) != cost ? Verification.MATCH_NEEDS_REHASH : Verification.MATCH;
+        });
+    }
+
+    // Hashes the password again in the background and hands the result to `store`; skipped when the hasher is busy
+    // (the next login will try again)
+    public void rehashLater(String raw, Consumer<String> store) {
+        try {
+            executor.execute(() -> {
+                try {
+                    store.accept(encoder.encode(raw));
+                } catch (RuntimeException e) {
+                    log.warn("Could not store an upgraded password hash: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // not worth a failed login
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static int costOf(String hash) {
+        return Integer.parseInt(hash.substring(hash.indexOf('$', 1) + 1, hash.indexOf('$', 1) + 3));
+    }
+
+    private <T> T run(Callable<T> task) {
+        return await(submit(task));
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            if (rejected != null) rejected.increment();
+            throw e;
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            if (rejected != null) rejected.increment();
+            throw new RejectedExecutionException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new RejectedExecutionException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
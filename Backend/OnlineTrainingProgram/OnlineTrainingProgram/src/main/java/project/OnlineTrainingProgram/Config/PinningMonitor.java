@@ -0,0 +1,113 @@
+package project.OnlineTrainingProgram.Config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Reports virtual threads that pin their carrier thread (blocking inside synchronized or native code, e.g. in a
+ * JDBC driver or Hibernate) for longer than app.virtual-threads.pinning-threshold.
+ * Listens to the JFR jdk.VirtualThreadPinned event in-process: every occurrence is counted as
+ * jvm.threads.virtual.pinned{site}, and the stack is logged once per site.
+ * Only runs with spring.threads.virtual.enabled=true on a Java 21+ runtime.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class PinningMonitor implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+    private static final String OWN_PACKAGE = "project.OnlineTrainingProgram.";
+    // our own wrappers that merely pass a JDBC call through; the caller beneath them is the site worth reporting
+    private static final String BULKHEAD = BulkheadDataSource.class.getName();
+
+    @Value("${app.virtual-threads.pinning-threshold:20ms}")
+    private Duration threshold;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private volatile RecordingStream stream;
+
+    public PinningMonitor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void start() {
+        if (Runtime.version().feature() < 21) {
+            log.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; requests run on platform threads",
+                     Runtime.version().feature());
+            return;
+        }
+        RecordingStream recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::onPinned);
+        recording.startAsync();
+        stream = recording;
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) recording.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() != null ? event.getStackTrace().getFrames() : List.of();
+        String site = site(frames);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Counter.builder("jvm.threads.virtual.pinned")
+                    .description("Virtual threads that pinned their carrier longer than the threshold")
+                    .tag("site", site)
+                    .register(registry)
+                    .increment();
+        }
+        if (reportedSites.add(site)) {
+            log.warn("Virtual thread pinned its carrier for {} ms at {}:\n\t{}", event.getDuration().toMillis(), site,
+                     frames.stream().limit(LOGGED_FRAMES).map(PinningMonitor::frame).collect(Collectors.joining("\n\t")));
+        }
+    }
+
+    // the innermost frame of our own code (past the bulkhead's connection proxy), or the top frame when the pin is
+    // entirely inside a library
+    private static String site(List<RecordedFrame> frames) {
+        return frames.stream()
+                .filter(f -> isOwnCode(f.getMethod().getType().getName()))
+                .findFirst()
+                .or(() -> frames.stream().findFirst())
+                .map(f -> f.getMethod().getType().getName() + "." + f.getMethod().getName())
+                .orElse("unknown");
+    }
+
+    private static boolean isOwnCode(String type) {
+        return type.startsWith(OWN_PACKAGE) && !type.equals(BULKHEAD) && !type.startsWith(BULKHEAD + "$");
+    }
+
+    private static String frame(RecordedFrame f) {
+        return f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+    }
+}
@@ -0,0 +1,175 @@
+package project.OnlineTrainingProgram.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import project.OnlineTrainingProgram.Entity.User;
+
+/**
+ * Stateless session tokens: keyId.payload.signature, where the payload (base64url "userId.role.expiresAt") is signed
+ * with HMAC-SHA256. Verifying one is a hash and a compare, with no database access and no server-side session.
+ * Keys come from app.auth.keys as a comma separated list of keyId:base64secret; the first one signs new tokens and
+ * the others are still accepted, so a key is rotated by putting a new one in front and dropping the old one once
+ * its tokens have expired (app.auth.token-ttl). rotate() does the same at runtime with a fresh random key; retired
+ * keys are dropped once they cannot have signed a live token. Without configured keys a random key is generated at
+ * startup, so tokens do not survive a restart and are only valid on the instance that issued them.
+ */
+@Component
+public class SessionTokens {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionTokens.class);
+
+    // request attribute holding the verified Principal (set by TokenAuthenticationFilter)
+    public static final String PRINCIPAL = "project.OnlineTrainingProgram.Config.SessionTokens.principal";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public record Principal(int userId, User.Role role, long expiresAt) {
+        public boolean isAdmin() {
+            return role == User.Role.ADMIN;
+        }
+    }
+
+    private static final class SigningKey {
+        final String id;
+        // Mac objects are not thread-safe: each signature clones this initialised one, which skips the key setup
+        final Mac prototype;
+        // epoch seconds after which no token signed with this key can still be valid (Long.MAX_VALUE while signing)
+        final long usefulUntil;
+
+        SigningKey(String id, Mac prototype, long usefulUntil) {
+            this.id = id;
+            this.prototype = prototype;
+            this.usefulUntil = usefulUntil;
+        }
+
+        static SigningKey of(String id, byte[] secret) {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(new SecretKeySpec(secret, ALGORITHM));
+                return new SigningKey(id, mac, Long.MAX_VALUE);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        byte[] sign(String data) {
+            try {
+                return ((Mac) prototype.clone()).doFinal(data.getBytes(StandardCharsets.US_ASCII));
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        SigningKey retire(long usefulUntil) {
+            return new SigningKey(id, prototype, usefulUntil);
+        }
+    }
+
+    // the signing key and every key that is still accepted, swapped as a whole on rotation
+    private record KeyRing(SigningKey signing, Map<String, SigningKey> accepted) {}
+
+    private final SecureRandom random = new SecureRandom();
+    private final Duration ttl;
+    private volatile KeyRing keys;
+
+    public SessionTokens(@Value("${app.auth.keys:}") String configuredKeys,
+                         @Value("${app.auth.token-ttl:8h}") Duration ttl) {
+        this.ttl = ttl;
+        Map<String, SigningKey> accepted = new LinkedHashMap<>();
+        for (String entry : configuredKeys.split(",")) {
+            if (entry.isBlank()) continue;
+            int colon = entry.indexOf(':');
+            String id = colon > 0 ? entry.substring(0, colon).trim() : "";
+            if (id.isEmpty() || id.contains(".")) {
+                throw new IllegalArgumentException("app.auth.keys entries must look like keyId:base64secret (no dots in the keyId)");
+            }
+            byte[] secret = Base64.getDecoder().decode(entry.substring(colon + 1).trim());
+            if (secret.length < 32) {
+                throw new IllegalArgumentException("app.auth.keys secret " + id + " must be at least 32 bytes");
+            }
+            accepted.put(id, SigningKey.of(id, secret));
+        }
+        if (accepted.isEmpty()) {
+            log.warn("app.auth.keys is not set: signing session tokens with a random key, they end with this process");
+            SigningKey generated = generate();
+            accepted.put(generated.id, generated);
+        }
+        keys = new KeyRing(accepted.values().iterator().next(), Map.copyOf(accepted));
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public String issue(int userId, User.Role role) {
+        SigningKey key = keys.signing;
+        long expiresAt = System.currentTimeMillis() / 1000 + ttl.toSeconds();
+        String payload = ENCODER.encodeToString((userId + "." + role.name() + "." + expiresAt).getBytes(StandardCharsets.US_ASCII));
+        String signed = key.id + "." + payload;
+        return signed + "." + ENCODER.encodeToString(key.sign(signed));
+    }
+
+    // The token's principal, or null when it is malformed, signed with an unknown key, tampered with or expired
+    public Principal verify(String token) {
+        if (token == null) return null;
+        int second = token.lastIndexOf('.');
+        int first = token.indexOf('.');
+        if (first <= 0 || second <= first) return null;
+        SigningKey key = keys.accepted.get(token.substring(0, first));
+        if (key == null) return null;
+        try {
+            byte[] signature = DECODER.decode(token.substring(second + 1));
+            if (!MessageDigest.isEqual(signature, key.sign(token.substring(0, second)))) return null;
+            String[] claims = new String(DECODER.decode(token.substring(first + 1, second)), StandardCharsets.US_ASCII).split("\\.");
+            if (claims.length != 3) return null;
+            long expiresAt = Long.parseLong(claims[2]);
+            if (expiresAt <= System.currentTimeMillis() / 1000) return null;
+            return new Principal(Integer.parseInt(claims[0]), User.Role.valueOf(claims[1]), expiresAt);
+        } catch (IllegalArgumentException e) {
+            // bad base64, number or role: not one of ours
+            return null;
+        }
+    }
+
+    // Starts signing with a fresh random key and returns its id; tokens of the previous keys stay valid until they expire
+    public synchronized String rotate() {
+        KeyRing current = keys;
+        long now = System.currentTimeMillis() / 1000;
+        long lastExpiry = now + ttl.toSeconds();
+        Map<String, SigningKey> accepted = new LinkedHashMap<>();
+        SigningKey fresh = generate();
+        accepted.put(fresh.id, fresh);
+        for (SigningKey key : current.accepted.values()) {
+            SigningKey kept = key == current.signing ? key.retire(lastExpiry) : key;
+            if (kept.usefulUntil > now) accepted.put(kept.id, kept);
+        }
+        keys = new KeyRing(fresh, Map.copyOf(accepted));
+        log.info("Session token signing key rotated to {}", fresh.id);
+        return fresh.id;
+    }
+
+    private SigningKey generate() {
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        byte[] id = new byte[6];
+        random.nextBytes(id);
+        return SigningKey.of(ENCODER.encodeToString(id), secret);
+    }
+}
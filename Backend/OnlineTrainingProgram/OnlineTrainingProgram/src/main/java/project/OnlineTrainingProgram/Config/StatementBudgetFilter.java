@@ -0,0 +1,75 @@
+package project.OnlineTrainingProgram.Config;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Per-request SQL statement budget. Counts the statements each request runs (StatementCounter), records them as
+ * http.server.statements{method, uri}, and logs a warning when a request goes over app.sql.statement-budget
+ * or runs the same statement app.sql.repeat-threshold times or more (likely N+1).
+ * Rows written by a StreamingResponseBody after the handler returns are not counted.
+ */
+@Component
+public class StatementBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementBudgetFilter.class);
+
+    @Value("${app.sql.statement-budget:20}")
+    private int budget;
+
+    @Value("${app.sql.repeat-threshold:5}")
+    private int repeatThreshold;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public StatementBudgetFilter(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        StatementCounter.Scope scope = StatementCounter.open();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            scope.close();
+            report(request, scope);
+        }
+    }
+
+    private void report(HttpServletRequest request, StatementCounter.Scope scope) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            DistributionSummary.builder("http.server.statements")
+                    .description("SQL statements run per request")
+                    .tags("method", request.getMethod(), "uri", uri)
+                    .register(registry)
+                    .record(scope.count());
+        }
+        if (scope.count() > budget) {
+            log.warn("{} {} ran {} SQL statements (budget {})", request.getMethod(), uri, scope.count(), budget);
+        }
+        for (Map.Entry<String, Integer> repeated : scope.repeated(repeatThreshold).entrySet()) {
+            log.warn("{} {} ran the same statement {} times (possible N+1): {}",
+                     request.getMethod(), uri, repeated.getValue(), repeated.getKey());
+        }
+    }
+}
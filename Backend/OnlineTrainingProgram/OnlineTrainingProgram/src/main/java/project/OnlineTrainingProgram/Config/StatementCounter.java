@@ -0,0 +1,81 @@
+package project.OnlineTrainingProgram.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a Scope is open
+ * (StatementBudgetFilter opens one per request; tests can open their own around a call).
+ * Registered as Hibernate's StatementInspector, so JPQL, native queries and stateless sessions are all seen.
+ * The SQL is returned unchanged.
+ */
+@Component
+public class StatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.record(sql);
+        }
+        return sql;
+    }
+
+    // Scopes nest: a statement counts towards the innermost scope and every scope around it
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Scope parent;
+        private final Map<String, Integer> bySql = new HashMap<>();
+        private int count;
+        private boolean closed;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        private void record(String sql) {
+            if (closed) return;
+            count++;
+            bySql.merge(sql, 1, Integer::sum);
+        }
+
+        public int count() {
+            return count;
+        }
+
+        // identical statements (same SQL text, whatever the parameters) run at least `threshold` times: the N+1 signature
+        public Map<String, Integer> repeated(int threshold) {
+            Map<String, Integer> repeated = new HashMap<>();
+            bySql.forEach((sql, times) -> {
+                if (times >= threshold) repeated.put(sql, times);
+            });
+            return repeated;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            if (CURRENT.get() == this) {
+                if (parent != null) CURRENT.set(parent);
+                else CURRENT.remove();
+            }
+        }
+    }
+}
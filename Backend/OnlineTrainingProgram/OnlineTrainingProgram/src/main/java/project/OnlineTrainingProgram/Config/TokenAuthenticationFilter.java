@@ -0,0 +1,106 @@
+package project.OnlineTrainingProgram.Config;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Requires a valid session token (Authorization: Bearer, see SessionTokens) on everything under /api/** except
+ * /api/login and /api/signup when app.auth.enabled=true. /api/admin/**, the UI's /api/users/** and
+ * /api/allocations/** and writes to /api/training/** additionally need the ADMIN role.
+ * Paths are matched after decoding, stripping ;path-parameters and resolving dot segments, the way the handler
+ * mapping sees them, so /api;x=1/admin/.. or /api/%61dmin/.. cannot slip past.
+ * Verification is done in memory, so handlers can trust the request attribute SessionTokens.PRINCIPAL instead of
+ * looking the user up. Runs ahead of the other filters, so a rejected request never claims an Idempotency-Key.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "app.auth.enabled", havingValue = "true")
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private static final Set<String> PUBLIC = Set.of("/api/login", "/api/signup");
+
+    private static final List<String> ADMIN = List.of("/api/admin", "/api/users", "/api/allocations");
+
+    private static final UrlPathHelper PATHS = new UrlPathHelper();
+
+    @Autowired
+    private SessionTokens sessionTokens;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        // CORS preflights carry no credentials
+        return HttpMethod.OPTIONS.matches(request.getMethod()) || !under(path, "/api") || PUBLIC.contains(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            error(response, HttpStatus.UNAUTHORIZED, "Login required");
+            return;
+        }
+        SessionTokens.Principal principal = sessionTokens.verify(header.substring(BEARER.length()).trim());
+        if (principal == null) {
+            error(response, HttpStatus.UNAUTHORIZED, "Invalid or expired token");
+            return;
+        }
+        if (!principal.isAdmin() && needsAdmin(request)) {
+            error(response, HttpStatus.FORBIDDEN, "Admin role required");
+            return;
+        }
+        request.setAttribute(SessionTokens.PRINCIPAL, principal);
+        chain.doFilter(request, response);
+    }
+
+    private static boolean needsAdmin(HttpServletRequest request) {
+        String path = path(request);
+        if (ADMIN.stream().anyMatch(prefix -> under(path, prefix))) return true;
+        // the catalog is readable by everyone logged in, maintaining it is not
+        return under(path, "/api/training") && !HttpMethod.GET.matches(request.getMethod());
+    }
+
+    // decoded, without ;params and with dot segments resolved; relative to the context path
+    private static String path(HttpServletRequest request) {
+        return StringUtils.cleanPath(PATHS.getPathWithinApplication(request));
+    }
+
+    private static boolean under(String path, String prefix) {
+        return path.equals(prefix) || path.startsWith(prefix + "/");
+    }
+
+    private void error(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        if (status == HttpStatus.UNAUTHORIZED) response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("success", false, "message", message));
+    }
+}
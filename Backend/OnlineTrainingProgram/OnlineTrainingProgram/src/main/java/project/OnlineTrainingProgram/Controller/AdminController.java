@@ -1,8 +1,14 @@
 package project.OnlineTrainingProgram.Controller;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,10 +17,18 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import project.OnlineTrainingProgram.Config.SessionTokens;
+import project.OnlineTrainingProgram.Model.BulkAllocationRequest;
+import project.OnlineTrainingProgram.Model.BulkAllocationResult;
+import project.OnlineTrainingProgram.Model.ImportResult;
 import project.OnlineTrainingProgram.Model.TrainingModel;
-import project.OnlineTrainingProgram.Model.UserModel;
+import project.OnlineTrainingProgram.Service.AllocationArchiver;
+import project.OnlineTrainingProgram.Service.ImportService;
+import project.OnlineTrainingProgram.Service.TrainingCatalogCache;
 import project.OnlineTrainingProgram.Service.TrainingService;
 import project.OnlineTrainingProgram.Service.UserService;
 import project.OnlineTrainingProgram.Service.UserTrainingAllocationService;
@@ -32,59 +46,132 @@ public class AdminController {
     @Autowired
     private UserTrainingAllocationService allocationService;
 
+    @Autowired
+    private ListResponder listResponder;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private TrainingCatalogCache catalogCache;
+
+    @Autowired
+    private SessionTokens sessionTokens;
 
-    //  Get all users
+    @Autowired
+    private AllocationArchiver allocationArchiver;
+
+    //  Get all users (streamed), or one keyset page when cursor/limit is given
+    //  includeArchived=true counts archived allocations in each user's programCount
     @GetMapping("/users")
-    public ResponseEntity<List<UserModel>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<StreamingResponseBody> getAllUsers(@RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer limit,
+                                                             @RequestParam(required = false) String format,
+                                                             @RequestParam(defaultValue = "false") boolean includeArchived) {
+        return listResponder.respond(cursor, limit, format, (c, l) -> userService.getUsersPage(c, l, includeArchived));
     }
 
-    //  Get all trainings
+    //  Get all trainings (streamed), or one keyset page when cursor/limit is given
     @GetMapping("/trainings")
-    public ResponseEntity<List<TrainingModel>> getAllTrainings() {
-        return ResponseEntity.ok(trainingService.getAllTrainings());
+    public ResponseEntity<StreamingResponseBody> getAllTrainings(@RequestParam(required = false) String cursor,
+                                                                 @RequestParam(required = false) Integer limit,
+                                                                 @RequestParam(required = false) String format) {
+        return listResponder.respond(cursor, limit, format, trainingService::getTrainingsPage);
     }
 
     //  Add new training
     @PostMapping("/trainings")
     public ResponseEntity<?> addTraining(@RequestBody TrainingModel training) {
-        trainingService.saveTraining(training);
+        try {
+            trainingService.saveTraining(training);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
         return ResponseEntity.ok(Map.of("success", true, "message", "Training added successfully"));
     }
 
     // Delete training
     @DeleteMapping("/trainings/{programId}")
     public ResponseEntity<?> deleteTraining(@PathVariable int programId) {
-        trainingService.deleteTraining(programId);
-        return ResponseEntity.ok(Map.of("success", true, "message", "Training deleted successfully"));
+        long allocationsRemoved = trainingService.deleteTraining(programId);
+        return ResponseEntity.ok(Map.of("success", true, "message", "Training deleted successfully",
+                                        "allocationsRemoved", allocationsRemoved));
     }
 
     //  Delete user
     @DeleteMapping("/users/{id}")
     public ResponseEntity<?> deleteUser(@PathVariable int id) {
-        userService.deleteUser(id);
-        return ResponseEntity.ok(Map.of("success", true, "message", "User deleted successfully"));
+        long allocationsRemoved = userService.deleteUser(id);
+        return ResponseEntity.ok(Map.of("success", true, "message", "User deleted successfully",
+                                        "allocationsRemoved", allocationsRemoved));
     }
 
-    //  View all allocations
+    //  View all allocations (streamed), or one keyset page when cursor/limit is given
     @GetMapping("/allocations")
-    public ResponseEntity<?> getAllAllocations() {
-        return ResponseEntity.ok(allocationService.getAllAllocations());
+    public ResponseEntity<StreamingResponseBody> getAllAllocations(@RequestParam(required = false) String cursor,
+                                                                   @RequestParam(required = false) Integer limit,
+                                                                   @RequestParam(required = false) String format) {
+        return listResponder.respond(cursor, limit, format, allocationService::getAllocationsPage);
+    }
+
+    // Export allocations as CSV (default) or NDJSON, optionally limited to an allocation date range and/or one program.
+    // Rows are streamed straight from a database cursor, so the download starts before the query has finished.
+    // includeArchived=true appends the matching archived allocations (see AllocationArchiver), flagged as archived.
+    @GetMapping("/allocations/export")
+    public ResponseEntity<StreamingResponseBody> exportAllocations(@RequestParam(defaultValue = "csv") String format,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                   @RequestParam(required = false) Integer programId,
+                                                                   @RequestParam(defaultValue = "false") boolean includeArchived) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        if (!ndjson && !"csv".equalsIgnoreCase(format)) {
+            return listResponder.badRequest("format must be csv or ndjson");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return listResponder.badRequest("from must not be after to");
+        }
+        return ResponseEntity.ok()
+                .contentType(ndjson ? ListResponder.NDJSON : new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"allocations." + (ndjson ? "ndjson" : "csv") + "\"")
+                .body(out -> allocationService.exportAllocations(out, ndjson, from, to, programId, includeArchived));
+    }
+
+    // Start signing session tokens with a fresh key; tokens signed with the previous keys stay valid until they expire.
+    // The new key lives in this instance only: with several instances, rotate through app.auth.keys instead.
+    @PostMapping("/auth/rotate-key")
+    public ResponseEntity<?> rotateTokenKey() {
+        return ResponseEntity.ok(Map.of("success", true, "keyId", sessionTokens.rotate()));
+    }
+
+    // Archive finished programs' (and, with app.archive.retention, old) allocations now instead of at the next scheduled run
+    @PostMapping("/archive/run")
+    public ResponseEntity<?> runArchiving() {
+        return ResponseEntity.ok(Map.of("success", true, "archived", allocationArchiver.archive()));
+    }
+
+    // Catalog cache hit/miss/eviction counters
+    @GetMapping("/cache/catalog")
+    public ResponseEntity<?> getCatalogCacheStats() {
+        return ResponseEntity.ok(catalogCache.stats());
     }
 
-    // Get users allocated with less than 3 programs (move up to avoid path conflict)
+    // Get users allocated with less than `threshold` programs (move up to avoid path conflict)
+    // Counted in a single grouped query and paged by user id; pass back nextCursor to get the following page
+    // includeArchived=true also counts allocations moved to the archive
     @GetMapping("/users/allocations/under-allocated")
-    public ResponseEntity<?> getUsersWithLessThanThreePrograms() {
-        List<UserModel> allUsers = userService.getAllUsers();
-        List<UserModel> result = new java.util.ArrayList<>();
-        for (UserModel user : allUsers) {
-            int count = allocationService.getAllocationsByUserId(user.getUserId()).size();
-            if (count < 3) {
-                user.setProgramCount(count);
-                result.add(user);
-            }
+    public ResponseEntity<?> getUnderAllocatedUsers(@RequestParam(defaultValue = "3") int threshold,
+                                                    @RequestParam(required = false) String role,
+                                                    @RequestParam(defaultValue = "false") boolean includeArchived,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "100") int limit) {
+        if (threshold < 0) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "threshold must not be negative"));
+        }
+        try {
+            return ResponseEntity.ok(userService.getUnderAllocatedUsers(threshold, role, includeArchived, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
         }
-        return ResponseEntity.ok(result);
     }
 
     // 8. Update training status by training ID
@@ -94,16 +181,58 @@ public class AdminController {
         if (status == null || status.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Status is required"));
         }
-        // Find the training in the existing trainings list, update status and save it.
-        List<TrainingModel> trainings = trainingService.getAllTrainings();
-        for (TrainingModel training : trainings) {
-            if (training.getProgramId() == id) {
-                training.setStatus(status);
-                trainingService.saveTraining(training);
-                return ResponseEntity.ok(Map.of("success", true, "message", "Training status updated successfully"));
+        // One targeted UPDATE; pass expectedStatus to only apply it if nobody changed the status in the meantime
+        try {
+            switch (trainingService.updateTrainingStatus(id, status, body.get("expectedStatus"))) {
+                case PROGRAM_NOT_FOUND:
+                    return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Training not found or status not updated"));
+                case CONFLICT:
+                    return ResponseEntity.status(409).body(Map.of("success", false, "message", "Training status was changed by someone else"));
+                default:
+                    return ResponseEntity.ok(Map.of("success", true, "message", "Training status updated successfully"));
             }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
+    // Sets the seat limit of a program: {"capacity": 30}, or {"capacity": null} for unlimited seats.
+    // Program edits without a capacity leave it as it is.
+    @PutMapping("/trainings/{id}/capacity")
+    public ResponseEntity<?> updateTrainingCapacity(@PathVariable int id, @RequestBody Map<String, Object> body) {
+        if (body == null || !body.containsKey("capacity")
+                || (body.get("capacity") != null && !(body.get("capacity") instanceof Integer))) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "capacity must be a whole number or null"));
+        }
+        try {
+            if (!trainingService.updateCapacity(id, (Integer) body.get("capacity"))) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Training not found"));
+            }
+            return ResponseEntity.ok(Map.of("success", true, "message", "Training capacity updated successfully"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
+    // Bulk status transition in one UPDATE: {"from": "ACTIVE", "to": "COMPLETED", "programIds": [..]} (programIds optional)
+    @PutMapping("/trainings/status")
+    public ResponseEntity<?> transitionTrainingStatus(@RequestBody Map<String, Object> body) {
+        if (body == null || !(body.get("from") instanceof String from) || !(body.get("to") instanceof String to)) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "from and to are required"));
+        }
+        List<Integer> programIds = null;
+        if (body.get("programIds") != null) {
+            if (!(body.get("programIds") instanceof List<?> ids) || !ids.stream().allMatch(Integer.class::isInstance)) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "programIds must be a list of ids"));
+            }
+            programIds = ids.stream().map(Integer.class::cast).toList();
+        }
+        try {
+            int updated = trainingService.transitionStatus(from, to, programIds);
+            return ResponseEntity.ok(Map.of("success", true, "message", "Training status updated successfully", "updated", updated));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
         }
-        return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Training not found or status not updated"));
     }
         // 9. Allocate program to user
     @PostMapping("/allocate-program")
@@ -118,29 +247,68 @@ public class AdminController {
         } catch (NumberFormatException nfe) {
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Invalid numeric id"));
         }
-        if (userService.getUserById(userId) == null) {
-            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "User not found"));
-        }
-        TrainingModel training = trainingService.getProgramById(programId);
-        if (training == null) {
-            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Training not found"));
-        }
-        // Check existing allocations for user
-        var existing = allocationService.getAllocationsByUserId(userId);
-        if (existing != null && existing.stream().anyMatch(a -> a.getProgram().getProgramId() == programId)) {
-            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Already allocated"));
-        }
-        // Allocate
-        project.OnlineTrainingProgram.Entity.User userEntity = new project.OnlineTrainingProgram.Entity.User();
-        userEntity.setUserId(userId);
-        project.OnlineTrainingProgram.Entity.TrainingProgram trainingEntity = new project.OnlineTrainingProgram.Entity.TrainingProgram();
-        trainingEntity.setProgramId(programId);
-        project.OnlineTrainingProgram.Entity.ProgramAllocation allocationEntity = new project.OnlineTrainingProgram.Entity.ProgramAllocation();
-        allocationEntity.setUser(userEntity);
-        allocationEntity.setProgram(trainingEntity);
-        allocationEntity.setAllocationDate(java.time.LocalDate.now());
-        allocationService.saveAllocationEntity(allocationEntity);
-        return ResponseEntity.ok(Map.of("success", true, "message", "Program allocated to user successfully", "programId", programId));
+        // Allocate in a single statement; the database reports missing user/program and duplicates
+        switch (allocationService.enroll(userId, programId, null)) {
+            case USER_NOT_FOUND:
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "User not found"));
+            case PROGRAM_NOT_FOUND:
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Training not found"));
+            case ALREADY_ENROLLED:
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Already allocated"));
+            case PROGRAM_FULL:
+                return ResponseEntity.status(409).body(Map.of("success", false, "message", "Training is full"));
+            default:
+                return ResponseEntity.ok(Map.of("success", true, "message", "Program allocated to user successfully", "programId", programId));
+        }
+    }
+
+    // Allocate a program to many users at once: {"programId": 1, "userIds": [..]} or a cohort filter {"programId": 1, "role": "USER", "emailDomain": "example.com"}
+    // Responds with the per-user outcome (enrolled / alreadyEnrolled / userNotFound / programFull)
+    @PostMapping("/allocate-program/bulk")
+    public ResponseEntity<?> allocateProgramToUsers(@RequestBody BulkAllocationRequest request) {
+        if (request == null || request.getProgramId() <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "programId required"));
+        }
+        try {
+            BulkAllocationResult result = allocationService.bulkAllocate(request);
+            if (result == null) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Training not found"));
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
+    // Bulk import users from the raw request body: CSV with a name,email,password,phoneNo,role header, or NDJSON (format=ndjson)
+    // Rows are committed chunkSize at a time; if the import stops early, re-send the file with offset=nextOffset
+    @PostMapping("/import/users")
+    public ResponseEntity<?> importUsers(InputStream body,
+                                         @RequestParam(required = false) String format,
+                                         @RequestParam(required = false) Integer chunkSize,
+                                         @RequestParam(defaultValue = "0") int offset) {
+        try {
+            return importResponse(importService.importUsers(body, format, chunkSize, offset));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
+    // Bulk import training programs: CSV with a programName,description,price,status header, or NDJSON
+    @PostMapping("/import/trainings")
+    public ResponseEntity<?> importTrainings(InputStream body,
+                                             @RequestParam(required = false) String format,
+                                             @RequestParam(required = false) Integer chunkSize,
+                                             @RequestParam(defaultValue = "0") int offset) {
+        try {
+            return importResponse(importService.importTrainings(body, format, chunkSize, offset));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> importResponse(ImportResult result) {
+        return result.isCompleted() ? ResponseEntity.ok(result) : ResponseEntity.internalServerError().body(result);
     }
 
         // Delete allocation by userId and programId
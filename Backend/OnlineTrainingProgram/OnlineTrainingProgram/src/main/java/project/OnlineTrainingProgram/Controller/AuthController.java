@@ -2,13 +2,17 @@ package project.OnlineTrainingProgram.Controller;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import project.OnlineTrainingProgram.Config.SessionTokens;
+import project.OnlineTrainingProgram.Entity.User;
 import project.OnlineTrainingProgram.Model.UserModel;
 import project.OnlineTrainingProgram.Service.UserService;
 
@@ -18,13 +22,17 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    // signed, expiring tokens carrying userId and role (checked by TokenAuthenticationFilter when app.auth.enabled)
+    @Autowired
+    private SessionTokens sessionTokens;
+
     @PostMapping("/api/signup")
     public ResponseEntity<?> signup(@RequestBody(required = false) Map<String, String> body) {
         String name = body.getOrDefault("name", "").trim();
         String email = body.getOrDefault("email", "").toLowerCase().trim();
         String phone = body.getOrDefault("phone", "").trim();
         String password = body.getOrDefault("password", "").trim();
-        String role = body.getOrDefault("role", "").toUpperCase().trim();
+        String role = body.getOrDefault("role", "USER").toUpperCase().trim();
 
         if (email.isBlank() || password.isBlank() || name.isBlank() || phone.isBlank() || role.isBlank()) {
             return ResponseEntity.badRequest().body(Map.of(
@@ -40,6 +48,14 @@ public class AuthController {
             ));
         }
 
+        // signup is public: admin accounts are only created or promoted by an existing admin (/api/users)
+        if (role.equals("ADMIN")) {
+            return ResponseEntity.status(403).body(Map.of(
+                "success", false,
+                "message", "Admin accounts can only be created by an admin"
+            ));
+        }
+
         // check existing in DB via service
         UserModel existing = userService.getUserByEmail(email);
         if (existing != null) {
@@ -55,13 +71,18 @@ public class AuthController {
         user.setEmail(email);
         user.setPhoneNo(phone);
         user.setPassword(password);
-        user.setRole(role);
-        userService.saveUser(user);
+        user.setRole("USER");
+        try {
+            userService.saveUser(user);
+        } catch (RejectedExecutionException e) {
+            return busy();
+        }
 
         return ResponseEntity.ok(Map.of(
             "success", true,
-            "user", Map.of("email", email, "name", name, "role", role),
-            "token", "demo-token"
+            "user", Map.of("email", email, "name", name, "role", "USER", "id", user.getUserId()),
+            "token", sessionTokens.issue(user.getUserId(), User.Role.USER),
+            "expiresIn", sessionTokens.getTtl().toSeconds()
         ));
     }
 
@@ -78,18 +99,18 @@ public class AuthController {
             ));
         }
 
-        // prefer authenticate if implemented
-        UserModel authenticated = userService.authenticate(email, password);
+        // one lookup by email; the BCrypt check runs on the bounded hasher pool
+        UserModel authenticated;
+        try {
+            authenticated = userService.authenticate(email, password);
+        } catch (RejectedExecutionException e) {
+            return busy();
+        }
         if (authenticated == null) {
-            // fallback: try fetch by email and compare password
-            UserModel stored = userService.getUserByEmail(email);
-            if (stored == null || !password.equals(stored.getPassword())) {
-                return ResponseEntity.status(401).body(Map.of(
-                    "success", false,
-                    "message", "Invalid credentials"
-                ));
-            }
-            authenticated = stored;
+            return ResponseEntity.status(401).body(Map.of(
+                "success", false,
+                "message", "Invalid credentials"
+            ));
         }
 
         return ResponseEntity.ok(Map.of(
@@ -99,7 +120,18 @@ public class AuthController {
                 "role", authenticated.getRole(),
                 "id", authenticated.getUserId()
             ),
-            "token", "demo-token"
+            "token", sessionTokens.issue(authenticated.getUserId(), User.Role.valueOf(authenticated.getRole().toUpperCase())),
+            "expiresIn", sessionTokens.getTtl().toSeconds()
         ));
     }
+
+    // the password hasher is saturated (login storm): ask the client to come back shortly
+    private static ResponseEntity<?> busy() {
+        return ResponseEntity.status(503)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(Map.of(
+                "success", false,
+                "message", "Too many logins right now, please retry shortly"
+            ));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package project.OnlineTrainingProgram.Controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import project.OnlineTrainingProgram.Service.TrainingCatalogCache;
+import project.OnlineTrainingProgram.Service.TrainingService;
+
+/**
+ * The serialized /api/user/trainings response, built once per catalog version and kept as plain and gzip bytes.
+ * It is rebuilt when TrainingCatalogCache.version() moves (any catalog or allocation write) or after
+ * app.catalog-cache.ttl. The ETag is a hash of the JSON itself, so a rebuild that yields the same
+ * content keeps the same ETag and polling clients keep getting 304s.
+ */
+@Component
+public class CatalogPayload {
+
+    public record Snapshot(long version, long expiresAt, String etag, byte[] json, byte[] gzip) {}
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private TrainingCatalogCache catalogCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.catalog-cache.ttl:5m}")
+    private Duration ttl;
+
+    private volatile Snapshot current;
+
+    public Snapshot get() {
+        Snapshot snapshot = current;
+        if (isFresh(snapshot)) return snapshot;
+        synchronized (this) {
+            // another request may have rebuilt it while this one waited
+            snapshot = current;
+            if (isFresh(snapshot)) return snapshot;
+            long version = catalogCache.version();
+            byte[] json = serialize();
+            snapshot = new Snapshot(version, System.nanoTime() + ttl.toNanos(), etag(json), json, gzip(json));
+            current = snapshot;
+            return snapshot;
+        }
+    }
+
+    // If-None-Match may hold several (possibly weak) tags, or *
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private boolean isFresh(Snapshot snapshot) {
+        return snapshot != null
+                && snapshot.version() == catalogCache.version()
+                && System.nanoTime() - snapshot.expiresAt() < 0;
+    }
+
+    private byte[] serialize() {
+        try {
+            // fixed key order (unlike Map.of), so every instance and restart produces the same bytes and ETag
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("success", true);
+            body.put("trainings", trainingService.getAllTrainings());
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the training catalog", e);
+        }
+    }
+
+    private static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(bytes)) {
+            gz.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
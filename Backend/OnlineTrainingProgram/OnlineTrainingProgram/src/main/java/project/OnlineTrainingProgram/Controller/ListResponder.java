@@ -0,0 +1,90 @@
+package project.OnlineTrainingProgram.Controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import project.OnlineTrainingProgram.Model.PageModel;
+
+/**
+ * Shared response handling for the list endpoints.
+ * - cursor and/or limit given: one keyset page as {items, nextCursor}
+ * - otherwise: the whole table streamed page by page, as a JSON array (default) or NDJSON (format=ndjson)
+ * Either way at most one page of rows is held in memory per request.
+ */
+@Component
+public class ListResponder {
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // rows fetched per round trip while streaming
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public <T> ResponseEntity<StreamingResponseBody> respond(String cursor, Integer limit, String format,
+                                                             BiFunction<String, Integer, PageModel<T>> pages) {
+        try {
+            if (cursor != null || limit != null) {
+                return json(HttpStatus.OK, pages.apply(cursor, limit != null ? limit : PageModel.DEFAULT_PAGE_SIZE));
+            }
+            boolean ndjson = "ndjson".equalsIgnoreCase(format);
+            if (format != null && !ndjson && !"json".equalsIgnoreCase(format)) {
+                return json(HttpStatus.BAD_REQUEST, Map.of("success", false, "message", "format must be json or ndjson"));
+            }
+            StreamingResponseBody body = out -> writeAll(out, ndjson, pages);
+            return ResponseEntity.ok()
+                    .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+    }
+
+    // the usual {success:false, message} error body, typed like the streamed responses
+    public ResponseEntity<StreamingResponseBody> badRequest(String message) {
+        return json(HttpStatus.BAD_REQUEST, Map.of("success", false, "message", message));
+    }
+
+    // every branch answers with a StreamingResponseBody so the endpoints can declare one concrete return type
+    private ResponseEntity<StreamingResponseBody> json(HttpStatus status, Object value) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, value));
+    }
+
+    // Each page is its own short DAO transaction, so a slow client never holds a connection open
+    private <T> void writeAll(OutputStream out, boolean ndjson,
+                              BiFunction<String, Integer, PageModel<T>> pages) throws IOException {
+        try (JsonGenerator gen = objectMapper.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.setRootValueSeparator(null);
+            if (!ndjson) gen.writeStartArray();
+            String cursor = null;
+            do {
+                PageModel<T> page = pages.apply(cursor, STREAM_PAGE_SIZE);
+                for (T item : page.getItems()) {
+                    gen.writeObject(item);
+                    if (ndjson) gen.writeRaw('\n');
+                }
+                // push every page to the client as soon as it is written
+                gen.flush();
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            if (!ndjson) gen.writeEndArray();
+        }
+    }
+}
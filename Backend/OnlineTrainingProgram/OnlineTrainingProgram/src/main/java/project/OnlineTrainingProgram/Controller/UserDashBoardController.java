@@ -1,23 +1,33 @@
 package project.OnlineTrainingProgram.Controller;
 
-import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import project.OnlineTrainingProgram.Model.TrainingModel;
-import project.OnlineTrainingProgram.Service.TrainingService;
+import project.OnlineTrainingProgram.Config.SessionTokens;
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+import project.OnlineTrainingProgram.Model.MyTrainingRow;
+import project.OnlineTrainingProgram.Service.EnrollmentPipeline;
 import project.OnlineTrainingProgram.Service.UserService;
 import project.OnlineTrainingProgram.Service.UserTrainingAllocationService;
 
@@ -38,18 +48,34 @@ public class UserDashBoardController {
     private UserService userService;
 
     @Autowired
-    private TrainingService trainingService;
+    private CatalogPayload catalogPayload;
 
     @Autowired
     private UserTrainingAllocationService allocationService;
 
+    @Autowired
+    private EnrollmentPipeline enrollmentPipeline;
+
     // 1. View Available Trainings
+    // Served from the pre-serialized catalog; a matching If-None-Match gets a bodiless 304
     @GetMapping("/trainings")
-    public ResponseEntity<?> getAvailableTrainings() {
+    public ResponseEntity<?> getAvailableTrainings(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            List<TrainingModel> trainings = trainingService.getAllTrainings();
-            if (trainings == null) trainings = Collections.emptyList();
-            return ResponseEntity.ok(Map.of("success", true, "trainings", trainings));
+            CatalogPayload.Snapshot payload = catalogPayload.get();
+            boolean notModified = CatalogPayload.matches(ifNoneMatch, payload.etag());
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                    .eTag(payload.etag())
+                    .cacheControl(CacheControl.noCache())   // browsers keep it but revalidate every time
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (notModified) {
+                return response.build();
+            }
+            response.contentType(MediaType.APPLICATION_JSON);
+            if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzip());
+            }
+            return response.body(payload.json());
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("success", false, "message", "Server error: " + e.getMessage()));
         }
@@ -57,7 +83,8 @@ public class UserDashBoardController {
 
     // 2. Enroll in a Training
     @PostMapping("/enroll")
-    public ResponseEntity<?> enrollInTraining(@RequestBody Map<String, String> body) {
+    public ResponseEntity<?> enrollInTraining(@RequestBody Map<String, String> body,
+                                              @RequestAttribute(name = SessionTokens.PRINCIPAL, required = false) SessionTokens.Principal principal) {
         try {
            if (body == null || !body.containsKey("userId") || !body.containsKey("trainingId")) {
                 return ResponseEntity.badRequest().body(Map.of("success", false, "message", "userId and trainingId required"));
@@ -71,68 +98,88 @@ public class UserDashBoardController {
             } catch (NumberFormatException nfe) {
                 return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Invalid numeric id"));
             }
-
-            if (userService.getUserById(userId) == null) {
-                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "User not found"));
+            if (!mayActFor(principal, userId)) {
+                return forbidden();
             }
 
-            TrainingModel training = trainingService.getProgramById(trainingId);
-            if (training == null) {
-                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Training not found"));
+            EnrollmentResult result;
+            if (enrollmentPipeline.isEnabled()) {
+                // write-behind mode: wait for the batch this enrollment was group-committed with
+                CompletableFuture<EnrollmentResult> pending = enrollmentPipeline.submit(userId, trainingId);
+                if (pending == null) {
+                    return busy("Too many enrollments right now, please retry shortly");
+                }
+                try {
+                    result = pending.get(enrollmentPipeline.getResponseTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException te) {
+                    return busy("Enrollment is taking longer than usual, please retry shortly");
+                } catch (ExecutionException ee) {
+                    // answer as the synchronous path would for the same failure
+                    Throwable cause = ee.getCause();
+                    if (cause instanceof RejectedExecutionException) {
+                        return busy("Enrollment is restarting, please retry shortly");
+                    }
+                    if (cause instanceof Error error) throw error;
+                    throw (Exception) cause;
+                }
+            } else {
+                // one INSERT ... ON CONFLICT DO NOTHING; existence and duplicate checks are done by the database
+                result = allocationService.enrollOrWaitlist(userId, trainingId, null);
             }
-
-            // Check existing allocations for user
-            List<project.OnlineTrainingProgram.Entity.ProgramAllocation> existing = allocationService.getAllocationsByUserId(userId);
-            if (existing != null && existing.stream().anyMatch(a -> a.getProgram().getProgramId() == trainingId)) {
-                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Already enrolled"));
+            switch (result) {
+                case USER_NOT_FOUND:
+                    return ResponseEntity.badRequest().body(Map.of("success", false, "message", "User not found"));
+                case PROGRAM_NOT_FOUND:
+                    return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Training not found"));
+                case ALREADY_ENROLLED:
+                    return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Already enrolled"));
+                case PROGRAM_FULL:
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("success", false, "message", "Training is full"));
+                case WAITLISTED:
+                    // accepted, not done: the user is enrolled once a seat frees up
+                    return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("success", true, "waitlisted", true,
+                            "message", "Training is full, you have been added to the waitlist", "trainingId", trainingId));
+                default:
+                    return ResponseEntity.ok(Map.of("success", true, "message", "User enrolled successfully", "trainingId", trainingId));
             }
-
-            // Use ProgramAllocation entity for persistence
-            project.OnlineTrainingProgram.Entity.User userEntity = new project.OnlineTrainingProgram.Entity.User();
-            userEntity.setUserId(userId);
-            project.OnlineTrainingProgram.Entity.TrainingProgram trainingEntity = new project.OnlineTrainingProgram.Entity.TrainingProgram();
-            trainingEntity.setProgramId(trainingId);
-
-            project.OnlineTrainingProgram.Entity.ProgramAllocation allocationEntity = new project.OnlineTrainingProgram.Entity.ProgramAllocation();
-            allocationEntity.setUser(userEntity);
-            allocationEntity.setProgram(trainingEntity);
-            allocationEntity.setAllocationDate(LocalDate.now());
-
-            allocationService.saveAllocationEntity(allocationEntity);
-
-            return ResponseEntity.ok(Map.of("success", true, "message", "User enrolled successfully", "trainingId", trainingId));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("success", false, "message", "Server error: " + e.getMessage()));
         }
     }
 
+    // 503 with Retry-After, for when the enrollment pipeline is saturated
+    private ResponseEntity<?> busy(String message) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, enrollmentPipeline.getRetryAfter().toSeconds())))
+                .body(Map.of("success", false, "message", message));
+    }
+
+    // With app.auth.enabled, TokenAuthenticationFilter has verified the caller: a user may only act for themselves, an admin for anyone.
+    // Without it there is no principal and every call is allowed, as before.
+    private static boolean mayActFor(SessionTokens.Principal principal, int userId) {
+        return principal == null || principal.isAdmin() || principal.userId() == userId;
+    }
+
+    private static ResponseEntity<?> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("success", false, "message", "Not allowed for this user"));
+    }
+
     // 3. View My Trainings
     @GetMapping("/my-trainings/{userId}")
-    public ResponseEntity<?> viewMyTrainings(@PathVariable int userId) {
+    public ResponseEntity<?> viewMyTrainings(@PathVariable int userId,
+                                             @RequestAttribute(name = SessionTokens.PRINCIPAL, required = false) SessionTokens.Principal principal) {
         try {
-            if (userService.getUserById(userId) == null) {
-                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "User not found"));
+            if (!mayActFor(principal, userId)) {
+                return forbidden();
             }
-
-            // Retrieve entity allocations and map to programId, programName, allocationDate
-            List<Map<String, Object>> allocations = new ArrayList<>();
-            List<project.OnlineTrainingProgram.Entity.ProgramAllocation> entities = allocationService.getAllocationsByUserId(userId);
-            if (entities != null) {
-                for (project.OnlineTrainingProgram.Entity.ProgramAllocation pa : entities) {
-                    Map<String, Object> entry = new java.util.HashMap<>();
-                    if (pa.getProgram() != null) {
-                        entry.put("programId", pa.getProgram().getProgramId());
-                        entry.put("programName", pa.getProgram().getProgramName());
-                    } else {
-                        entry.put("programId", null);
-                        entry.put("programName", null);
-                    }
-                    entry.put("allocationDate", pa.getAllocationDate());
-                    allocations.add(entry);
-                }
+            // programId, programName, allocationDate straight from one projection query
+            List<MyTrainingRow> trainings = allocationService.getMyTrainings(userId);
+            // Only an empty list can mean an unknown user; a verified token already vouches for its own user
+            boolean ownToken = principal != null && principal.userId() == userId;
+            if (trainings.isEmpty() && !ownToken && !userService.userExists(userId)) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "User not found"));
             }
-
-            return ResponseEntity.ok(Map.of("success", true, "trainings", allocations));
+            return ResponseEntity.ok(Map.of("success", true, "trainings", trainings));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("success", false, "message", "Server error: " + e.getMessage()));
         }
@@ -140,7 +187,8 @@ public class UserDashBoardController {
 
     // 4. Cancel My Enrollment
     @DeleteMapping("/cancel-enrollment")
-    public ResponseEntity<?> cancelEnrollment(@RequestBody Map<String, String> body) {
+    public ResponseEntity<?> cancelEnrollment(@RequestBody Map<String, String> body,
+                                              @RequestAttribute(name = SessionTokens.PRINCIPAL, required = false) SessionTokens.Principal principal) {
         try {
             if (body == null || !body.containsKey("userId") || !body.containsKey("trainingId")) {
                 return ResponseEntity.badRequest().body(Map.of("success", false, "message", "userId and trainingId required"));
@@ -153,8 +201,14 @@ public class UserDashBoardController {
             } catch (NumberFormatException nfe) {
                 return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Invalid numeric id"));
             }
+            if (!mayActFor(principal, userId)) {
+                return forbidden();
+            }
 
             boolean existed = allocationService.deleteAllocation(userId, trainingId);
+            if (!existed && allocationService.leaveWaitlist(userId, trainingId)) {
+                return ResponseEntity.ok(Map.of("success", true, "message", "Removed from the waitlist"));
+            }
             if (!existed) {
                 return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Enrollment not found"));
             }
@@ -0,0 +1,55 @@
+package project.OnlineTrainingProgram.Dao;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+import project.OnlineTrainingProgram.Entity.TrainingProgram.ProgramStatus;
+
+@Repository
+@Transactional
+public class AllocationArchiveDAO {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final List<String> FINISHED = List.of(ProgramStatus.COMPLETED.name(), ProgramStatus.CANCELLED.name());
+
+    // Moves up to `limit` allocations of finished programs (and, given a cutoff, allocations dated before it) into
+    // user_program_allocation_archive, in one transaction and three statements: pick and lock the rows, copy them,
+    // delete them from the hot table. Returns how many were moved; fewer than `limit` means nothing is left to archive.
+    public int archiveChunk(LocalDate cutoff, int limit) {
+        // the picked rows stay locked until the move commits, so a cancellation either happens before the pick or
+        // finds the row gone afterwards, never leaving an archived copy of a deleted allocation;
+        // rows another transaction holds are left for the next run
+        Query pick = entityManager.createNativeQuery(
+                "SELECT allocation_id FROM user_program_allocation " +
+                "WHERE program_id IN (SELECT program_id FROM training_program WHERE status IN (:finished))" +
+                (cutoff != null ? " OR allocation_date < :cutoff" : "") +
+                " ORDER BY allocation_id LIMIT :limit FOR UPDATE SKIP LOCKED")
+            .setParameter("finished", FINISHED)
+            .setParameter("limit", limit);
+        if (cutoff != null) pick.setParameter("cutoff", cutoff);
+        List<Integer> ids = ((List<?>) pick.getResultList()).stream().map(id -> ((Number) id).intValue()).toList();
+        if (ids.isEmpty()) return 0;
+
+        // ON CONFLICT covers a retried chunk
+        entityManager.createNativeQuery(
+                "INSERT INTO user_program_allocation_archive " +
+                "(allocation_id, user_id, program_id, allocated_by, allocation_date, archived_at) " +
+                "SELECT allocation_id, user_id, program_id, allocated_by, allocation_date, :archivedAt " +
+                "FROM user_program_allocation WHERE allocation_id IN (:ids) ON CONFLICT DO NOTHING")
+            .setParameter("archivedAt", LocalDateTime.now())
+            .setParameter("ids", ids)
+            .executeUpdate();
+        return entityManager.createQuery("DELETE FROM ProgramAllocation a WHERE a.allocationId IN :ids")
+            .setParameter("ids", ids)
+            .executeUpdate();
+    }
+}
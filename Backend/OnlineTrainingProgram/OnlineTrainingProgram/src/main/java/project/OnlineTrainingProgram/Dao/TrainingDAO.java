@@ -4,9 +4,12 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import project.OnlineTrainingProgram.Entity.TrainingProgram;
+import project.OnlineTrainingProgram.Entity.TrainingProgram.ProgramStatus;
+import project.OnlineTrainingProgram.Model.SeatUsage;
+import project.OnlineTrainingProgram.Model.StatusUpdateResult;
 import project.OnlineTrainingProgram.Model.TrainingModel;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -16,6 +19,14 @@ public class TrainingDAO {
     @PersistenceContext
     private EntityManager entityManager;
 
+    //catalog projection: program columns plus the number of allocations, counted by the database instead of
+    //lazy-loading each program's allocation list (that was one extra statement and every allocation row per program)
+    private static final String CATALOG_QUERY =
+        "SELECT new project.OnlineTrainingProgram.Model.TrainingModel(" +
+        "t.programId, t.programName, t.description, t.price, t.programStatus, " +
+        "(SELECT COUNT(a) FROM ProgramAllocation a WHERE a.program = t), t.capacity) " +
+        "FROM TrainingProgram t";
+
     public void save(TrainingModel trainingModel) {
         try {
         	//if programId is 0 than a new training Prog need to be created
@@ -26,6 +37,8 @@ public class TrainingDAO {
                 entityManager.persist(entity);
                 // Forces the pending changes in the db
                 entityManager.flush(); 
+                // hand the generated id back to the caller
+                trainingModel.setProgramId(entity.getProgramId());
             } else { 
             	// if programId is not 0, that an existing program is need to be updated
                 TrainingProgram entity = entityManager.find(TrainingProgram.class, trainingModel.getProgramId());//finds exixting entity in db using pk
@@ -35,6 +48,10 @@ public class TrainingDAO {
                     entity.setProgramName(trainingModel.getProgramName());
                     entity.setDescription(trainingModel.getDescription());
                     entity.setPrice(trainingModel.getPrice());
+                    // an edit without a capacity keeps the current one; updateCapacity sets or removes it
+                    if (trainingModel.getCapacity() != null) {
+                        entity.setCapacity(trainingModel.getCapacity());
+                    }
                     entity.setProgramStatus(		
                     TrainingProgram.ProgramStatus.valueOf(trainingModel.getStatus().toUpperCase())//convert status from string to following ENUM values
                     );
@@ -49,57 +66,128 @@ public class TrainingDAO {
     }
 
     public TrainingModel getTrainingById(int id) {
-    	//Finds a TrainingProgram entity by its ID.
-        TrainingProgram entity = entityManager.find(TrainingProgram.class, id);
-        //Returns the converted model otherwise returns null
-        return entity != null ? toModel(entity) : null;
+    	//Loads the program together with its enrollment count in one statement
+        return getCatalogEntry(id);
     }
   
     public TrainingModel getProgramById(int programId) {
-        TrainingProgram entity = entityManager.find(TrainingProgram.class, programId);
-        //Converts the entity to a model or returns null.
-        return entity != null ? toModel(entity) : null;
+        return getCatalogEntry(programId);
     }
     
     public List<TrainingModel> getAllTrainings() {
-    	//Creates a JPQL query to select all records from the TrainingProgram entity.
-        List<TrainingProgram> programs =
-            entityManager.createQuery("SELECT t FROM TrainingProgram t", TrainingProgram.class)
-                         .getResultList();
-        //Uses a stream to map each TrainingProgram entity to a TrainingModel and collects them into a new List.
-        return programs.stream().map(this::toModel).collect(Collectors.toList());
+    	//Projects every program straight into a TrainingModel; the count comes from the subquery so no allocation rows are loaded
+        return entityManager.createQuery(CATALOG_QUERY + " ORDER BY t.programId", TrainingModel.class)
+                            .getResultList();
     }
 
-    public void delete(int id) {
-        TrainingProgram program = entityManager.find(TrainingProgram.class, id);
-        if (program != null) {
-            entityManager.remove(program);//remove program from db
+    // Keyset page of the catalog: programs with programId > afterProgramId in id order
+    public List<TrainingModel> getTrainingsAfter(int afterProgramId, int maxResults) {
+        return entityManager.createQuery(CATALOG_QUERY + " WHERE t.programId > :afterProgramId ORDER BY t.programId", TrainingModel.class)
+                            .setParameter("afterProgramId", afterProgramId)
+                            .setMaxResults(maxResults)
+                            .getResultList();
+    }
+
+    private TrainingModel getCatalogEntry(int programId) {
+        return entityManager.createQuery(CATALOG_QUERY + " WHERE t.programId = :programId", TrainingModel.class)
+                            .setParameter("programId", programId)
+                            .getResultStream()
+                            .findFirst()
+                            .orElse(null);
+    }
+
+    //Capacity and seats taken for programs with a capacity (all of them, or just programId), for SeatLedger.
+    //Counted per program with the allocation index on program_id.
+    public List<SeatUsage> getSeatUsage(Integer programId) {
+        var query = entityManager.createQuery(
+                "SELECT new project.OnlineTrainingProgram.Model.SeatUsage(t.programId, t.capacity, " +
+                "(SELECT COUNT(a) FROM ProgramAllocation a WHERE a.program = t)) " +
+                "FROM TrainingProgram t WHERE t.capacity IS NOT NULL" +
+                (programId != null ? " AND t.programId = :programId" : ""), SeatUsage.class);
+        if (programId != null) {
+            query.setParameter("programId", programId);
         }
+        return query.getResultList();
     }
-    @Transactional
-    public boolean deleteTrainingById(int programId) {
-        TrainingProgram program = entityManager.find(TrainingProgram.class, programId);
-        if (program != null) {
-            entityManager.remove(program);//remove program from db
-            return true;
+
+    //Inserts one import chunk in a single transaction; unlike save() it flushes once per chunk
+    //and clears the persistence context afterwards so a long import keeps a constant-size session
+    public void insertAll(List<TrainingModel> models) {
+        for (TrainingModel model : models) {
+            entityManager.persist(toEntity(model));
         }
-        return false;
+        entityManager.flush();
+        entityManager.clear();
     }
 
-    
-    private TrainingModel toModel(TrainingProgram entity) {
-    	//method to convert a database entity to a model
-        TrainingModel model = new TrainingModel();
-        //maps all
-        model.setProgramId(entity.getProgramId());
-        model.setProgramName(entity.getProgramName());
-        model.setDescription(entity.getDescription());
-        model.setPrice(entity.getPrice());
-        model.setStatus(entity.getProgramStatus().name());
-        model.setPurchasedByCount(entity.getAllocations() != null ? entity.getAllocations().size() : 0);
-        return model;
+    //Targeted status change as a single UPDATE, without loading the program or its allocations.
+    //When expected is given the update only applies if the program still has that status (optimistic check),
+    //so two admins acting on the same program cannot silently overwrite each other.
+    public StatusUpdateResult updateStatus(int programId, ProgramStatus status, ProgramStatus expected) {
+        String jpql = "UPDATE TrainingProgram t SET t.programStatus = :status WHERE t.programId = :programId"
+                    + (expected != null ? " AND t.programStatus = :expected" : "");
+        var update = entityManager.createQuery(jpql)
+                                  .setParameter("status", status)
+                                  .setParameter("programId", programId);
+        if (expected != null) {
+            update.setParameter("expected", expected);
+        }
+        if (update.executeUpdate() == 1) {
+            return StatusUpdateResult.UPDATED;
+        }
+        //nothing updated: either the id is unknown or the status moved on
+        boolean exists = !entityManager.createQuery("SELECT t.programId FROM TrainingProgram t WHERE t.programId = :programId")
+                                       .setParameter("programId", programId)
+                                       .setMaxResults(1)
+                                       .getResultList()
+                                       .isEmpty();
+        return exists ? StatusUpdateResult.CONFLICT : StatusUpdateResult.PROGRAM_NOT_FOUND;
     }
 
+    //Sets the seat limit of one program (null = unlimited); false when the id is unknown
+    public boolean updateCapacity(int programId, Integer capacity) {
+        return entityManager.createQuery("UPDATE TrainingProgram t SET t.capacity = :capacity WHERE t.programId = :programId")
+                            .setParameter("capacity", capacity)
+                            .setParameter("programId", programId)
+                            .executeUpdate() == 1;
+    }
+
+    //Bulk transition (e.g. every ACTIVE program to COMPLETED) as one set-based UPDATE;
+    //programIds may be null to cover every program in the `from` status. Returns the number of programs changed.
+    public int updateStatusWhere(ProgramStatus from, ProgramStatus to, Collection<Integer> programIds) {
+        String jpql = "UPDATE TrainingProgram t SET t.programStatus = :to WHERE t.programStatus = :from"
+                    + (programIds != null ? " AND t.programId IN :programIds" : "");
+        var update = entityManager.createQuery(jpql)
+                                  .setParameter("to", to)
+                                  .setParameter("from", from);
+        if (programIds != null) {
+            update.setParameter("programIds", programIds);
+        }
+        return update.executeUpdate();
+    }
+
+    public void delete(int id) {
+        deleteTrainingById(id);
+    }
+
+    // Set-based: the allocations are normally purged in chunks first (AllocationPurger); this sweeps up the few that
+    // arrived since, then removes the program itself, without loading the program or any allocation.
+    // Bulk statements bypass the persistence context, so pending changes are flushed before and it is cleared after.
+    @Transactional
+    public boolean deleteTrainingById(int programId) {
+        entityManager.flush();
+        entityManager.createQuery("DELETE FROM ProgramAllocation a WHERE a.program.programId = :id")
+                .setParameter("id", programId)
+                .executeUpdate();
+        // waitlist rows go with it (ON DELETE CASCADE)
+        boolean removed = entityManager.createQuery("DELETE FROM TrainingProgram t WHERE t.programId = :id")
+                .setParameter("id", programId)
+                .executeUpdate() > 0;
+        entityManager.clear();
+        return removed;
+    }
+
+    
     private TrainingProgram toEntity(TrainingModel model) {
     	//method to convert a model to a database entity.
         TrainingProgram entity = new TrainingProgram();
@@ -107,6 +195,7 @@ public class TrainingDAO {
         entity.setProgramName(model.getProgramName());
         entity.setDescription(model.getDescription());
         entity.setPrice(model.getPrice());
+        entity.setCapacity(model.getCapacity());
         //Checks if the status is not null before converting it to an enum.
         if (model.getStatus() != null) {
         	//Converts the status string back to the ProgramStatus enum.
@@ -1,15 +1,15 @@
 package project.OnlineTrainingProgram.Dao;
 
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 import project.OnlineTrainingProgram.Entity.User;
 import project.OnlineTrainingProgram.Entity.User.Role;
 import project.OnlineTrainingProgram.Model.UserModel;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Repository;
 @Repository
@@ -19,6 +19,20 @@ public class UserDAO {
     @PersistenceContext
     private EntityManager entityManager;
 
+    // list projection with the allocation count done by the database instead of loading programAllocations per user;
+    // the password hash never leaves the server (only getCredentialsByEmail reads it)
+    private static final String USER_LIST_QUERY = userListQuery(false);
+
+    // the user's allocations moved out by AllocationArchiver, added to the counts of reports asked to include them
+    private static final String ARCHIVED_COUNT = "(SELECT COUNT(x) FROM ArchivedAllocation x WHERE x.user = u)";
+
+    private static String userListQuery(boolean includeArchived) {
+        return "SELECT new project.OnlineTrainingProgram.Model.UserModel(" +
+               "u.userId, u.name, u.email, u.phoneNo, u.role, " +
+               "(SELECT COUNT(a) FROM ProgramAllocation a WHERE a.user = u)" + (includeArchived ? " + " + ARCHIVED_COUNT : "") + ") " +
+               "FROM User u";
+    }
+
     // Save or update
     public void save(UserModel model) {
         User entity;
@@ -32,7 +46,10 @@ public class UserDAO {
         entity.setName(model.getName());
         entity.setEmail(model.getEmail());
         entity.setPhoneNo(model.getPhoneNo());
-        entity.setPassword(model.getPassword()); // critical
+        // no password on an update keeps the stored hash
+        if (model.getPassword() != null) {
+            entity.setPassword(model.getPassword());
+        }
         if (model.getRole() != null) {
             entity.setRole(Role.valueOf(model.getRole().toUpperCase()));
         }
@@ -45,60 +62,134 @@ public class UserDAO {
         }
     }
 
+    // detail reads use the list projection too: one statement, with the allocations counted instead of loaded
     public UserModel getUserById(int id) {
-        User entity = entityManager.find(User.class, id);
-        return entity != null ? toModel(entity) : null;
+        return entityManager.createQuery(USER_LIST_QUERY + " WHERE u.userId = :id", UserModel.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    // existence only: unlike getUserById this does not load the user's allocations
+    public boolean exists(int id) {
+        return !entityManager.createQuery("SELECT u.userId FROM User u WHERE u.userId = :id")
+                .setParameter("id", id)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
     }
 
     public List<UserModel> getAllUsers() {
-        List<User> users = entityManager.createQuery("SELECT u FROM User u", User.class).getResultList();
-        return users.stream().map(this::toModel).collect(Collectors.toList());
+        return entityManager.createQuery(USER_LIST_QUERY + " ORDER BY u.userId", UserModel.class).getResultList();
+    }
+
+    // Keyset page: users with userId > afterUserId in id order, so deep pages cost the same as the first one;
+    // with includeArchived the program counts also cover archived allocations
+    public List<UserModel> getUsersAfter(int afterUserId, int maxResults, boolean includeArchived) {
+        return entityManager.createQuery(userListQuery(includeArchived) + " WHERE u.userId > :afterUserId ORDER BY u.userId", UserModel.class)
+                .setParameter("afterUserId", afterUserId)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    // Users holding fewer than `threshold` allocations, counted with one LEFT JOIN ... GROUP BY ... HAVING
+    // (plus each user's archived allocations when includeArchived).
+    // Keyset paging: rows come back ordered by userId starting after `afterUserId`; role may be null for all roles.
+    public List<UserModel> getUsersWithProgramCountBelow(int threshold, Role role, boolean includeArchived, int afterUserId, int maxResults) {
+        String count = "COUNT(a)" + (includeArchived ? " + " + ARCHIVED_COUNT : "");
+        String jpql = "SELECT new project.OnlineTrainingProgram.Model.UserModel(" +
+                      "u.userId, u.name, u.email, u.phoneNo, u.role, " + count + ") " +
+                      "FROM User u LEFT JOIN u.programAllocations a " +
+                      "WHERE u.userId > :afterUserId" + (role != null ? " AND u.role = :role " : " ") +
+                      "GROUP BY u.userId, u.name, u.email, u.phoneNo, u.role " +
+                      "HAVING " + count + " < :threshold " +
+                      "ORDER BY u.userId";
+        TypedQuery<UserModel> query = entityManager.createQuery(jpql, UserModel.class)
+                .setParameter("afterUserId", afterUserId)
+                .setParameter("threshold", (long) threshold)
+                .setMaxResults(maxResults);
+        if (role != null) {
+            query.setParameter("role", role);
+        }
+        return query.getResultList();
     }
 
-    public void delete(int id) {
-        User user = entityManager.find(User.class, id);
-        if (user != null) {
-            entityManager.remove(user);
+    // Emails out of the given (lower-case) batch that are already registered, in any case; returned lower-cased
+    public List<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) return List.of();
+        return entityManager.createQuery("SELECT LOWER(u.email) FROM User u WHERE LOWER(u.email) IN :emails", String.class)
+                .setParameter("emails", emails)
+                .getResultList();
+    }
+
+    // Inserts one import chunk in a single transaction, then flushes and clears the persistence context
+    // so a long import never accumulates managed entities. passwordHashes.get(i) is stored for models.get(i).
+    public void insertAll(List<UserModel> models, List<String> passwordHashes) {
+        for (int i = 0; i < models.size(); i++) {
+            UserModel model = models.get(i);
+            User entity = new User();
+            entity.setName(model.getName());
+            entity.setEmail(model.getEmail());
+            entity.setPhoneNo(model.getPhoneNo());
+            entity.setPassword(passwordHashes.get(i));
+            entity.setRole(Role.valueOf(model.getRole().toUpperCase()));
+            entityManager.persist(entity);
         }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // Set-based, like TrainingDAO.deleteTrainingById: sweeps up what AllocationPurger's chunks left (allocations of
+    // the user, and allocatedBy of allocations they made for others, made in the meantime), then removes the user
+    public boolean delete(int id) {
+        entityManager.flush();
+        entityManager.createQuery("DELETE FROM ProgramAllocation a WHERE a.user.userId = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+        entityManager.createQuery("UPDATE ProgramAllocation a SET a.allocatedBy = NULL WHERE a.allocatedBy.userId = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+        // waitlist rows go with it (ON DELETE CASCADE)
+        boolean removed = entityManager.createQuery("DELETE FROM User u WHERE u.userId = :id")
+                .setParameter("id", id)
+                .executeUpdate() > 0;
+        entityManager.clear();
+        return removed;
     }
     public UserModel getUserByEmail(String email) {
-        try {
-            User user = entityManager
-                .createQuery("SELECT u FROM User u WHERE u.email = :email", User.class)
+        return entityManager.createQuery(USER_LIST_QUERY + " WHERE u.email = :email", UserModel.class)
                 .setParameter("email", email)
-                .getSingleResult();
-            return toModel(user);
-        } catch (NoResultException e) {
-            return null;
-        }
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
     }
     
-    public UserModel authenticate(String email, String rawPassword) {
-        List<User> found = entityManager
-                .createQuery("SELECT u FROM User u WHERE u.email = :email", User.class)
+    // Login lookup in one query: the fields the login response needs plus the stored password hash
+    // (the allocation count of USER_LIST_QUERY is not needed here). Verifying is PasswordHasher's job.
+    public UserModel getCredentialsByEmail(String email) {
+        List<Object[]> found = entityManager
+                .createQuery("SELECT u.userId, u.name, u.email, u.role, u.password FROM User u WHERE u.email = :email", Object[].class)
                 .setParameter("email", email)
                 .setMaxResults(1)
                 .getResultList();
-
         if (found.isEmpty()) return null;
 
-        User u = found.get(0);
-        // For now plain comparison. If you hash, compare hashed values here.
-        if (u.getPassword() != null && u.getPassword().equals(rawPassword)) {
-            return toModel(u); // do not set password in the model we return
-        }
-        return null;
-    }
-
-    private UserModel toModel(User entity) {
+        Object[] row = found.get(0);
         UserModel model = new UserModel();
-        model.setUserId(entity.getUserId());
-        model.setName(entity.getName());
-        model.setEmail(entity.getEmail());
-        model.setPhoneNo(entity.getPhoneNo());
-        model.setPassword(entity.getPassword());
-        model.setRole(entity.getRole().name());
-        model.setProgramCount(entity.getProgramAllocations() != null ? entity.getProgramAllocations().size() : 0);
+        model.setUserId((Integer) row[0]);
+        model.setName((String) row[1]);
+        model.setEmail((String) row[2]);
+        model.setRole(((Role) row[3]).name());
+        model.setPassword((String) row[4]);
         return model;
     }
+
+    // stores an upgraded hash after a successful login
+    public void updatePassword(int userId, String passwordHash) {
+        entityManager.createQuery("UPDATE User u SET u.password = :password WHERE u.userId = :userId")
+                .setParameter("password", passwordHash)
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
 }
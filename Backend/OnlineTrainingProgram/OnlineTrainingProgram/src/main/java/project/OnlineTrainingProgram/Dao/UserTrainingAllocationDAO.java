@@ -1,16 +1,36 @@
 package project.OnlineTrainingProgram.Dao;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.SelectionQuery;
 
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnit;
 import jakarta.transaction.Transactional;
 import project.OnlineTrainingProgram.Entity.ProgramAllocation;
 import project.OnlineTrainingProgram.Entity.TrainingProgram;
 import project.OnlineTrainingProgram.Entity.User;
+import project.OnlineTrainingProgram.Model.AllocationExportRow;
+import project.OnlineTrainingProgram.Model.BulkAllocationResult;
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+import project.OnlineTrainingProgram.Model.MyTrainingRow;
 import project.OnlineTrainingProgram.Model.UserTrainingAllocationModel;
 
 @Repository
@@ -20,6 +40,18 @@ public class UserTrainingAllocationDAO {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    // rows the JDBC driver pulls per round trip while the export cursor is open
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    // id-only projection: reads the foreign key columns instead of hydrating user, program and allocatedBy entities
+    private static final String ALLOCATION_LIST_QUERY =
+        "SELECT new project.OnlineTrainingProgram.Model.UserTrainingAllocationModel(" +
+        "a.allocationId, a.user.userId, a.program.programId, COALESCE(ab.userId, 0), a.allocationDate) " +
+        "FROM ProgramAllocation a LEFT JOIN a.allocatedBy ab";
+
     public void save(UserTrainingAllocationModel model) {
         ProgramAllocation entity;
         if (model.getAllocationId() == 0) {
@@ -37,40 +69,94 @@ public class UserTrainingAllocationDAO {
 
         }
     }
-    public ProgramAllocation getByUserIdAndTrainingId(int userId, int trainingId) {
-        return entityManager.createQuery(
-                "SELECT a FROM ProgramAllocation a WHERE a.user.userId = :userId AND a.program.programId = :trainingId",
-                ProgramAllocation.class)
-            .setParameter("userId", userId)
-            .setParameter("trainingId", trainingId)
-            .getResultStream()
-            .findFirst()
-            .orElse(null);
-    }
 
 
+    // one select of the allocation row: toModel only reads the associations' ids, which the lazy proxies already hold
     public UserTrainingAllocationModel getAllocationById(int id) {
         ProgramAllocation entity = entityManager.find(ProgramAllocation.class, id);
         return entity != null ? toModel(entity) : null;
     }
 
     public List<UserTrainingAllocationModel> getAllAllocations() {
-        List<ProgramAllocation> allocations =
-                entityManager.createQuery("SELECT a FROM ProgramAllocation a", ProgramAllocation.class).getResultList();
-        return allocations.stream().map(this::toModel).collect(Collectors.toList());
+        return entityManager.createQuery(ALLOCATION_LIST_QUERY + " ORDER BY a.allocationId", UserTrainingAllocationModel.class)
+                .getResultList();
     }
 
-    public void delete(int id) {
-        ProgramAllocation allocation = entityManager.find(ProgramAllocation.class, id);
-        if (allocation != null) {
-            entityManager.remove(allocation);
-        }
+    // Keyset page: allocations with allocationId > afterAllocationId in id order
+    public List<UserTrainingAllocationModel> getAllocationsAfter(int afterAllocationId, int maxResults) {
+        return entityManager.createQuery(ALLOCATION_LIST_QUERY + " WHERE a.allocationId > :afterAllocationId ORDER BY a.allocationId",
+                        UserTrainingAllocationModel.class)
+                .setParameter("afterAllocationId", afterAllocationId)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    // one DELETE by user and program; returns whether an allocation was removed
+    public boolean deleteByUserAndProgram(int userId, int programId) {
+        return entityManager.createQuery(
+                "DELETE FROM ProgramAllocation a WHERE a.user.userId = :userId AND a.program.programId = :programId")
+            .setParameter("userId", userId)
+            .setParameter("programId", programId)
+            .executeUpdate() > 0;
+    }
+
+    // Deletes up to `limit` allocations of a program (column program_id) or of a user (user_id) in one statement and
+    // its own transaction, so the row locks last one chunk; returns how many went. Used by AllocationPurger.
+    public int deleteChunk(boolean byProgram, int id, int limit) {
+        String column = byProgram ? "program_id" : "user_id";
+        return entityManager.createNativeQuery(
+                "DELETE FROM user_program_allocation WHERE allocation_id IN (" +
+                "SELECT allocation_id FROM user_program_allocation WHERE " + column + " = ?1 LIMIT ?2)")
+            .setParameter(1, id)
+            .setParameter(2, limit)
+            .executeUpdate();
+    }
+
+    // Clears allocated_by on up to `limit` allocations the user made for others, in one statement and transaction;
+    // returns how many changed. Used by AllocationPurger before the user is deleted.
+    public int clearAllocatedByChunk(int userId, int limit) {
+        return entityManager.createNativeQuery(
+                "UPDATE user_program_allocation SET allocated_by = NULL WHERE allocation_id IN (" +
+                "SELECT allocation_id FROM user_program_allocation WHERE allocated_by = ?1 LIMIT ?2)")
+            .setParameter(1, userId)
+            .setParameter(2, limit)
+            .executeUpdate();
+    }
+
+    public long countByProgramOrUser(boolean byProgram, int id) {
+        return entityManager.createQuery(
+                "SELECT COUNT(a) FROM ProgramAllocation a WHERE " + (byProgram ? "a.program.programId" : "a.user.userId") + " = :id",
+                Long.class)
+            .setParameter("id", id)
+            .getSingleResult();
+    }
+
+    // one DELETE by id, only while the allocation still belongs to the program; returns whether it was removed
+    public boolean deleteFromProgram(int id, int programId) {
+        return entityManager.createQuery(
+                "DELETE FROM ProgramAllocation a WHERE a.allocationId = :id AND a.program.programId = :programId")
+            .setParameter("id", id)
+            .setParameter("programId", programId)
+            .executeUpdate() > 0;
+    }
+
+    public boolean isEnrolled(int userId, int programId) {
+        return !entityManager.createQuery(
+                "SELECT a.allocationId FROM ProgramAllocation a WHERE a.user.userId = :userId AND a.program.programId = :programId")
+            .setParameter("userId", userId)
+            .setParameter("programId", programId)
+            .setMaxResults(1)
+            .getResultList()
+            .isEmpty();
     }
     
-    public List<ProgramAllocation> getAllocationsByUserId(int userId) {
+    // "My trainings" as three columns in one statement: no allocation, user or program entities are loaded
+    // (the user_id lookup is served by the uk_allocation_user_program index)
+    public List<MyTrainingRow> getMyTrainings(int userId) {
         return entityManager.createQuery(
-                "SELECT a FROM ProgramAllocation a WHERE a.user.userId = :userId",
-                ProgramAllocation.class)
+                "SELECT new project.OnlineTrainingProgram.Model.MyTrainingRow(p.programId, p.programName, a.allocationDate) " +
+                "FROM ProgramAllocation a JOIN a.program p WHERE a.user.userId = :userId ORDER BY p.programId",
+                MyTrainingRow.class)
             .setParameter("userId", userId)
             .getResultList();
     }
@@ -79,6 +165,232 @@ public class UserTrainingAllocationDAO {
         entityManager.persist(allocation);
     }
 
+    // Enrolls in one statement: the INSERT ... SELECT only produces a row when both the user and the program exist,
+    // and ON CONFLICT lets the (user_id, program_id) unique constraint reject duplicates atomically.
+    // Only when nothing was inserted do we spend a second query to tell the caller why.
+    public EnrollmentResult enroll(int userId, int programId, Integer allocatedById) {
+        String sql = "INSERT INTO user_program_allocation (user_id, program_id, allocation_date"
+                   + (allocatedById != null ? ", allocated_by" : "") + ") "
+                   + "SELECT u.user_id, p.program_id, :allocationDate"
+                   + (allocatedById != null ? ", :allocatedBy" : "") + " "
+                   + "FROM users u JOIN training_program p ON p.program_id = :programId "
+                   + "WHERE u.user_id = :userId "
+                   + "ON CONFLICT DO NOTHING";
+        var insert = entityManager.createNativeQuery(sql)
+                .setParameter("userId", userId)
+                .setParameter("programId", programId)
+                .setParameter("allocationDate", LocalDate.now());
+        if (allocatedById != null) {
+            insert.setParameter("allocatedBy", allocatedById);
+        }
+        if (insert.executeUpdate() == 1) {
+            return EnrollmentResult.ENROLLED;
+        }
+
+        if (!exists("SELECT u.userId FROM User u WHERE u.userId = :id", userId)) {
+            return EnrollmentResult.USER_NOT_FOUND;
+        }
+        if (!programExists(programId)) {
+            return EnrollmentResult.PROGRAM_NOT_FOUND;
+        }
+        return EnrollmentResult.ALREADY_ENROLLED;
+    }
+
+    // Group commit for EnrollmentPipeline: enrolls many (user, program) pairs in one transaction and four statements,
+    // whatever the batch size: which users exist, which programs exist, which pairs are already enrolled, then one
+    // multi-row INSERT. The result at index i belongs to userIds[i] / programIds[i]; a pair repeated within the batch
+    // is ALREADY_ENROLLED after its first occurrence. Only pairs whose index is set in `admitted` (they hold a seat)
+    // are inserted; a new pair that is not admitted comes back as PROGRAM_FULL.
+    // Keep batches bounded (3 bind parameters per inserted row).
+    public List<EnrollmentResult> enrollAll(List<Integer> userIds, List<Integer> programIds, BitSet admitted) {
+        Set<Integer> users = new HashSet<>(entityManager.createQuery(
+                "SELECT u.userId FROM User u WHERE u.userId IN :ids", Integer.class)
+            .setParameter("ids", new HashSet<>(userIds))
+            .getResultList());
+        Set<Integer> programs = new HashSet<>(entityManager.createQuery(
+                "SELECT p.programId FROM TrainingProgram p WHERE p.programId IN :ids", Integer.class)
+            .setParameter("ids", new HashSet<>(programIds))
+            .getResultList());
+        Set<Long> enrolled = new HashSet<>();
+        if (!users.isEmpty() && !programs.isEmpty()) {
+            // users x programs is a superset of the batch's pairs; the extra rows are just never looked up
+            for (Object[] row : entityManager.createQuery(
+                    "SELECT a.user.userId, a.program.programId FROM ProgramAllocation a " +
+                    "WHERE a.user.userId IN :users AND a.program.programId IN :programs", Object[].class)
+                    .setParameter("users", users)
+                    .setParameter("programs", programs)
+                    .getResultList()) {
+                enrolled.add(pair((Integer) row[0], (Integer) row[1]));
+            }
+        }
+
+        List<EnrollmentResult> results = new ArrayList<>(userIds.size());
+        List<Integer> toInsert = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            int userId = userIds.get(i), programId = programIds.get(i);
+            if (!users.contains(userId)) results.add(EnrollmentResult.USER_NOT_FOUND);
+            else if (!programs.contains(programId)) results.add(EnrollmentResult.PROGRAM_NOT_FOUND);
+            else if (enrolled.contains(pair(userId, programId))) results.add(EnrollmentResult.ALREADY_ENROLLED);
+            else if (!admitted.get(i)) results.add(EnrollmentResult.PROGRAM_FULL);
+            else {
+                enrolled.add(pair(userId, programId));
+                results.add(EnrollmentResult.ENROLLED);
+                toInsert.add(i);
+            }
+        }
+        insertPairs(entityManager, userIds, programIds, toInsert);
+        return results;
+    }
+
+    // One multi-row INSERT of the pairs at the given indexes (shared with WaitlistDAO.promote)
+    static void insertPairs(EntityManager entityManager, List<Integer> userIds, List<Integer> programIds, List<Integer> indexes) {
+        if (indexes.isEmpty()) return;
+        StringBuilder sql = new StringBuilder("INSERT INTO user_program_allocation (user_id, program_id, allocation_date) VALUES ");
+        for (int row = 0; row < indexes.size(); row++) {
+            sql.append(row == 0 ? "" : ", ").append("(:u").append(row).append(", :p").append(row).append(", :allocationDate)");
+        }
+        // same as bulkEnroll: a concurrent enrollment that slipped in after the check is skipped, the user is enrolled either way
+        sql.append(" ON CONFLICT DO NOTHING");
+        var insert = entityManager.createNativeQuery(sql.toString()).setParameter("allocationDate", LocalDate.now());
+        for (int row = 0; row < indexes.size(); row++) {
+            insert.setParameter("u" + row, userIds.get(indexes.get(row)));
+            insert.setParameter("p" + row, programIds.get(indexes.get(row)));
+        }
+        insert.executeUpdate();
+    }
+
+    static long pair(int userId, int programId) {
+        return ((long) userId << 32) | (programId & 0xffffffffL);
+    }
+
+    // Streams allocations (optionally filtered by date range and program) to the sink in allocation id order; with
+    // includeArchived the matching rows of the archive table follow, in the same order and marked as archived.
+    // Runs on a stateless session with a forward-only cursor: no persistence context, no entity hydration, and only
+    // EXPORT_FETCH_SIZE rows buffered by the driver at a time. Returns the number of rows written.
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public long exportAllocations(LocalDate from, LocalDate to, Integer programId, boolean includeArchived,
+                                  Consumer<AllocationExportRow> sink) {
+        List<String> queries = new ArrayList<>(2);
+        queries.add(exportQuery("ProgramAllocation", false, from, to, programId));
+        if (includeArchived) queries.add(exportQuery("ArchivedAllocation", true, from, to, programId));
+        long count = 0;
+        try (StatelessSession session = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession()) {
+            // PostgreSQL only honours the fetch size (a server-side cursor) inside a transaction
+            Transaction tx = session.beginTransaction();
+            try {
+                for (String hql : queries) {
+                    SelectionQuery<AllocationExportRow> query = session.createSelectionQuery(hql, AllocationExportRow.class)
+                            .setFetchSize(EXPORT_FETCH_SIZE)
+                            .setReadOnly(true);
+                    if (from != null) query.setParameter("from", from);
+                    if (to != null) query.setParameter("to", to);
+                    if (programId != null) query.setParameter("programId", programId);
+                    try (ScrollableResults<AllocationExportRow> rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                        while (rows.next()) {
+                            sink.accept(rows.get());
+                            count++;
+                        }
+                    }
+                }
+                tx.commit();
+            } catch (RuntimeException e) {
+                tx.rollback();
+                throw e;
+            }
+        }
+        return count;
+    }
+
+    // the hot and the archive entity have the same attributes, so one export query serves both
+    private static String exportQuery(String entity, boolean archived, LocalDate from, LocalDate to, Integer programId) {
+        return "SELECT new project.OnlineTrainingProgram.Model.AllocationExportRow(" +
+               "a.allocationId, u.userId, u.name, u.email, p.programId, p.programName, ab.userId, a.allocationDate, " + archived + ") " +
+               "FROM " + entity + " a JOIN a.user u JOIN a.program p LEFT JOIN a.allocatedBy ab WHERE 1 = 1" +
+               (from != null ? " AND a.allocationDate >= :from" : "") +
+               (to != null ? " AND a.allocationDate <= :to" : "") +
+               (programId != null ? " AND p.programId = :programId" : "") +
+               " ORDER BY a.allocationId";
+    }
+
+    public boolean programExists(int programId) {
+        return exists("SELECT p.programId FROM TrainingProgram p WHERE p.programId = :id", programId);
+    }
+
+    // Bulk enrollment of one chunk of users into a program, in one transaction and three statements:
+    // which users exist, which of them are already enrolled, then one set-based INSERT ... SELECT for the rest.
+    // `seats` is asked for as many seats as there are users to insert and returns how many it granted;
+    // users past that number are reported as programFull.
+    // userIds should be de-duplicated and bounded (the service sends chunks of BULK_CHUNK_SIZE).
+    public BulkAllocationResult bulkEnroll(int programId, Collection<Integer> userIds, Integer allocatedById, IntUnaryOperator seats) {
+        BulkAllocationResult result = new BulkAllocationResult(programId);
+        if (userIds.isEmpty()) return result;
+
+        Set<Integer> existingUsers = new HashSet<>(entityManager.createQuery(
+                "SELECT u.userId FROM User u WHERE u.userId IN :ids", Integer.class)
+            .setParameter("ids", userIds)
+            .getResultList());
+        Set<Integer> alreadyEnrolled = new HashSet<>(entityManager.createQuery(
+                "SELECT a.user.userId FROM ProgramAllocation a WHERE a.program.programId = :programId AND a.user.userId IN :ids",
+                Integer.class)
+            .setParameter("programId", programId)
+            .setParameter("ids", userIds)
+            .getResultList());
+
+        List<Integer> toInsert = new ArrayList<>();
+        for (Integer userId : userIds) {
+            if (!existingUsers.contains(userId)) result.getUserNotFound().add(userId);
+            else if (alreadyEnrolled.contains(userId)) result.getAlreadyEnrolled().add(userId);
+            else toInsert.add(userId);
+        }
+        int granted = toInsert.isEmpty() ? 0 : seats.applyAsInt(toInsert.size());
+        if (granted < toInsert.size()) {
+            result.getProgramFull().addAll(toInsert.subList(granted, toInsert.size()));
+            toInsert = new ArrayList<>(toInsert.subList(0, granted));
+        }
+        if (!toInsert.isEmpty()) {
+            String sql = "INSERT INTO user_program_allocation (user_id, program_id, allocation_date"
+                       + (allocatedById != null ? ", allocated_by" : "") + ") "
+                       + "SELECT u.user_id, :programId, :allocationDate"
+                       + (allocatedById != null ? ", :allocatedBy" : "") + " "
+                       + "FROM users u WHERE u.user_id IN (:ids) "
+                       // a concurrent enrollment that slipped in after the check is skipped; the user ends up enrolled either way
+                       + "ON CONFLICT DO NOTHING";
+            var insert = entityManager.createNativeQuery(sql)
+                    .setParameter("programId", programId)
+                    .setParameter("allocationDate", LocalDate.now())
+                    .setParameter("ids", toInsert);
+            if (allocatedById != null) {
+                insert.setParameter("allocatedBy", allocatedById);
+            }
+            insert.executeUpdate();
+            result.getEnrolled().addAll(toInsert);
+        }
+        return result;
+    }
+
+    // Next keyset chunk of user ids matching a cohort filter (role and/or email domain, either may be null);
+    // the domain is matched literally, its % and _ are not wildcards
+    public List<Integer> getCohortUserIds(User.Role role, String emailDomain, int afterUserId, int maxResults) {
+        String jpql = "SELECT u.userId FROM User u WHERE u.userId > :afterUserId"
+                    + (role != null ? " AND u.role = :role" : "")
+                    + (emailDomain != null ? " AND LOWER(u.email) LIKE :emailPattern ESCAPE '\\'" : "")
+                    + " ORDER BY u.userId";
+        var query = entityManager.createQuery(jpql, Integer.class)
+                .setParameter("afterUserId", afterUserId)
+                .setMaxResults(maxResults);
+        if (role != null) query.setParameter("role", role);
+        if (emailDomain != null) query.setParameter("emailPattern", "%@" + escapeLike(emailDomain.toLowerCase()));
+        return query.getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private boolean exists(String jpql, int id) {
+        return !entityManager.createQuery(jpql).setParameter("id", id).setMaxResults(1).getResultList().isEmpty();
+    }
+
 
     // Conversion methods
     private UserTrainingAllocationModel toModel(ProgramAllocation entity) {
@@ -0,0 +1,162 @@
+package project.OnlineTrainingProgram.Dao;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import static project.OnlineTrainingProgram.Dao.UserTrainingAllocationDAO.pair;
+
+@Repository
+@Transactional
+public class WaitlistDAO {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Puts the user at the end of the program's waitlist in one statement; false when nothing was inserted
+    // (already waiting, or the user or program does not exist). Same shape as UserTrainingAllocationDAO.enroll.
+    public boolean join(int userId, int programId) {
+        return entityManager.createNativeQuery(
+                "INSERT INTO program_waitlist (user_id, program_id, joined_at) "
+                + "SELECT u.user_id, p.program_id, :joinedAt "
+                + "FROM users u JOIN training_program p ON p.program_id = :programId "
+                + "WHERE u.user_id = :userId "
+                + "ON CONFLICT DO NOTHING")
+            .setParameter("userId", userId)
+            .setParameter("programId", programId)
+            .setParameter("joinedAt", LocalDateTime.now())
+            .executeUpdate() == 1;
+    }
+
+    // Group-committed joins for the enrollment pipeline, in two statements: which pairs already wait, then one
+    // multi-row INSERT in list order for the rest. The users and programs must exist (the pipeline only waitlists
+    // pairs it has seen in the database). Returns the indexes that were newly added.
+    public BitSet joinAll(List<Integer> userIds, List<Integer> programIds) {
+        Set<Long> waiting = new HashSet<>(waitingPairs(userIds, programIds).keySet());
+        BitSet joined = new BitSet(userIds.size());
+        List<Integer> toInsert = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            if (waiting.add(pair(userIds.get(i), programIds.get(i)))) {
+                joined.set(i);
+                toInsert.add(i);
+            }
+        }
+        if (!toInsert.isEmpty()) {
+            StringBuilder sql = new StringBuilder("INSERT INTO program_waitlist (user_id, program_id, joined_at) VALUES ");
+            for (int row = 0; row < toInsert.size(); row++) {
+                sql.append(row == 0 ? "" : ", ").append("(:u").append(row).append(", :p").append(row).append(", :joinedAt)");
+            }
+            // a concurrent join of the same pair is skipped; the user is waiting either way
+            sql.append(" ON CONFLICT DO NOTHING");
+            var insert = entityManager.createNativeQuery(sql.toString()).setParameter("joinedAt", LocalDateTime.now());
+            for (int row = 0; row < toInsert.size(); row++) {
+                insert.setParameter("u" + row, userIds.get(toInsert.get(row)));
+                insert.setParameter("p" + row, programIds.get(toInsert.get(row)));
+            }
+            insert.executeUpdate();
+        }
+        return joined;
+    }
+
+    public boolean isWaiting(int userId, int programId) {
+        return !entityManager.createQuery(
+                "SELECT w.waitlistId FROM WaitlistEntry w WHERE w.user.userId = :userId AND w.program.programId = :programId")
+            .setParameter("userId", userId)
+            .setParameter("programId", programId)
+            .setMaxResults(1)
+            .getResultList()
+            .isEmpty();
+    }
+
+    // one DELETE by user and program; returns whether the user was waiting
+    public boolean leave(int userId, int programId) {
+        return entityManager.createQuery(
+                "DELETE FROM WaitlistEntry w WHERE w.user.userId = :userId AND w.program.programId = :programId")
+            .setParameter("userId", userId)
+            .setParameter("programId", programId)
+            .executeUpdate() > 0;
+    }
+
+    // Waiting user ids per program in join order, for the given programs or all of them (null)
+    public Map<Integer, List<Integer>> getQueues(Collection<Integer> programIds) {
+        var query = entityManager.createQuery(
+                "SELECT w.program.programId, w.user.userId FROM WaitlistEntry w" +
+                (programIds != null ? " WHERE w.program.programId IN :programIds" : "") +
+                " ORDER BY w.waitlistId", Object[].class);
+        if (programIds != null) query.setParameter("programIds", programIds);
+        Map<Integer, List<Integer>> queues = new LinkedHashMap<>();
+        for (Object[] row : query.getResultList()) {
+            queues.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((Integer) row[1]);
+        }
+        return queues;
+    }
+
+    // Moves a batch of waiting users into their programs in one transaction and four statements, whatever the batch
+    // size: which of the pairs still wait, which are already enrolled, one multi-row INSERT, one DELETE of their
+    // waitlist rows. The result holds the indexes that were enrolled; the others had left the waitlist (or were
+    // enrolled some other way, in which case their entry is just removed). Seats are the caller's business.
+    public BitSet promote(List<Integer> userIds, List<Integer> programIds) {
+        BitSet promoted = new BitSet(userIds.size());
+        Map<Long, Integer> waiting = waitingPairs(userIds, programIds);
+        if (waiting.isEmpty()) return promoted;
+
+        Set<Long> enrolled = new HashSet<>();
+        for (Object[] row : entityManager.createQuery(
+                "SELECT a.user.userId, a.program.programId FROM ProgramAllocation a " +
+                "WHERE a.user.userId IN :users AND a.program.programId IN :programs", Object[].class)
+                .setParameter("users", new HashSet<>(userIds))
+                .setParameter("programs", new HashSet<>(programIds))
+                .getResultList()) {
+            enrolled.add(pair((Integer) row[0], (Integer) row[1]));
+        }
+
+        List<Integer> toInsert = new ArrayList<>();
+        List<Integer> entries = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            long pair = pair(userIds.get(i), programIds.get(i));
+            // only this batch's entries: users x programs can match waiters that were not picked
+            Integer entry = waiting.remove(pair);
+            if (entry == null) continue;
+            entries.add(entry);
+            if (enrolled.add(pair)) {
+                promoted.set(i);
+                toInsert.add(i);
+            }
+        }
+        UserTrainingAllocationDAO.insertPairs(entityManager, userIds, programIds, toInsert);
+        if (!entries.isEmpty()) {
+            entityManager.createQuery("DELETE FROM WaitlistEntry w WHERE w.waitlistId IN :ids")
+                .setParameter("ids", entries)
+                .executeUpdate();
+        }
+        return promoted;
+    }
+
+    // waitlist id per (user, program) pair for a superset of the given pairs
+    private Map<Long, Integer> waitingPairs(List<Integer> userIds, List<Integer> programIds) {
+        Map<Long, Integer> waiting = new HashMap<>();
+        if (userIds.isEmpty()) return waiting;
+        for (Object[] row : entityManager.createQuery(
+                "SELECT w.waitlistId, w.user.userId, w.program.programId FROM WaitlistEntry w " +
+                "WHERE w.user.userId IN :users AND w.program.programId IN :programs", Object[].class)
+                .setParameter("users", new HashSet<>(userIds))
+                .setParameter("programs", new HashSet<>(programIds))
+                .getResultList()) {
+            waiting.put(pair((Integer) row[1], (Integer) row[2]), (Integer) row[0]);
+        }
+        return waiting;
+    }
+}
@@ -0,0 +1,65 @@
+package project.OnlineTrainingProgram.Entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.*;
+// Cold storage for allocations moved out of user_program_allocation by AllocationArchiver: the same columns,
+// the original allocation id, and when the row was archived. Only reports read it.
+@Entity
+@Table(name = "user_program_allocation_archive",
+       indexes = {@Index(name = "idx_archive_program", columnList = "program_id"),
+                  @Index(name = "idx_archive_user", columnList = "user_id"),
+                  @Index(name = "idx_archive_date", columnList = "allocation_date")})
+public class ArchivedAllocation {
+
+    // copied from the hot table, never generated here
+    @Id
+    @Column(name = "allocation_id")
+    private int allocationId;
+
+    // archived rows go with their user or program in the database, so deletes never have to look at them
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "program_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private TrainingProgram program;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "allocated_by")
+    @OnDelete(action = OnDeleteAction.SET_NULL)
+    private User allocatedBy;
+
+    @Column(name = "allocation_date")
+    private LocalDate allocationDate;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+
+
+    public int getAllocationId() { return allocationId; }
+    public void setAllocationId(int allocationId) { this.allocationId = allocationId; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public TrainingProgram getProgram() { return program; }
+    public void setProgram(TrainingProgram program) { this.program = program; }
+
+    public User getAllocatedBy() { return allocatedBy; }
+    public void setAllocatedBy(User allocatedBy) { this.allocatedBy = allocatedBy; }
+
+    public LocalDate getAllocationDate() { return allocationDate; }
+    public void setAllocationDate(LocalDate allocationDate) { this.allocationDate = allocationDate; }
+
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+}
@@ -4,7 +4,15 @@ import java.time.LocalDate;
 
 import jakarta.persistence.*;
 @Entity
-@Table(name = "user_program_allocation")
+@Table(name = "user_program_allocation",
+       // one allocation per user and program, enforced by the database so enrollment needs no read-before-write
+       uniqueConstraints = @UniqueConstraint(name = "uk_allocation_user_program", columnNames = {"user_id", "program_id"}),
+       indexes = {@Index(name = "idx_allocation_program", columnList = "program_id"),
+                  // date-range filter of the allocation export
+                  @Index(name = "idx_allocation_date", columnList = "allocation_date")})
+// Associations are lazy and no read hands the entity out: lists, export and "my trainings" are constructor
+// projections that select exactly their columns, and detail/delete only need the ids, which the proxies answer
+// from the foreign key columns. A new read that returns the entity should choose its fetch plan there.
 public class ProgramAllocation {
 
     @Id
@@ -12,15 +20,15 @@ public class ProgramAllocation {
     @Column(name = "allocation_id")
     private int allocationId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "program_id", nullable = false)
     private TrainingProgram program;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "allocated_by")
     private User allocatedBy;
 
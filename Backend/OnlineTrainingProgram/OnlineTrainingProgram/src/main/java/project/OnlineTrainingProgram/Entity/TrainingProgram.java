@@ -32,6 +32,10 @@ public class TrainingProgram {
     @OneToMany(mappedBy = "program", cascade = CascadeType.ALL)
     private List<ProgramAllocation> allocations;
     
+    // seat limit for the program; null means unlimited
+    @Column(name = "capacity")
+    private Integer capacity;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
     private ProgramStatus programStatus = ProgramStatus.ACTIVE;
@@ -66,6 +70,14 @@ public class TrainingProgram {
         this.price = price;
     }
 
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(Integer capacity) {
+        this.capacity = capacity;
+    }
+
     public ProgramStatus getProgramStatus() {
         return programStatus;
     }
@@ -0,0 +1,50 @@
+package project.OnlineTrainingProgram.Entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.*;
+@Entity
+@Table(name = "program_waitlist",
+       // a user waits at most once per program
+       uniqueConstraints = @UniqueConstraint(name = "uk_waitlist_user_program", columnNames = {"user_id", "program_id"}),
+       // a program's waiters in join order
+       indexes = @Index(name = "idx_waitlist_program", columnList = "program_id, waitlist_id"))
+public class WaitlistEntry {
+
+    // join order: the waitlist is first come, first served by this id
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "waitlist_id")
+    private int waitlistId;
+
+    // entries go with their user or program in the database, so neither delete has to load them
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "program_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private TrainingProgram program;
+
+    @Column(name = "joined_at", nullable = false)
+    private LocalDateTime joinedAt = LocalDateTime.now();
+
+
+
+    public int getWaitlistId() { return waitlistId; }
+    public void setWaitlistId(int waitlistId) { this.waitlistId = waitlistId; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public TrainingProgram getProgram() { return program; }
+    public void setProgram(TrainingProgram program) { this.program = program; }
+
+    public LocalDateTime getJoinedAt() { return joinedAt; }
+    public void setJoinedAt(LocalDateTime joinedAt) { this.joinedAt = joinedAt; }
+}
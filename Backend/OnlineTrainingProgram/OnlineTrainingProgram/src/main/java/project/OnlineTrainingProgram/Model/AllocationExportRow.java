@@ -0,0 +1,72 @@
+package project.OnlineTrainingProgram.Model;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// One line of the allocation export: ids plus the user and program names reporting needs, read as flat columns
+public class AllocationExportRow {
+
+    public static final String CSV_HEADER = "allocationId,userId,userName,userEmail,programId,programName,allocatedById,allocationDate";
+    // exports that include archived rows add this column
+    public static final String CSV_ARCHIVED_COLUMN = ",archived";
+
+    private int allocationId;
+    private int userId;
+    private String userName;
+    private String userEmail;
+    private int programId;
+    private String programName;
+    private Integer allocatedById;
+    private LocalDate allocationDate;
+    // read from the archive table (AllocationArchiver); left out of the JSON for the usual, hot rows
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean archived;
+
+    public AllocationExportRow() {}
+
+    public AllocationExportRow(int allocationId, int userId, String userName, String userEmail,
+                               int programId, String programName, Integer allocatedById, LocalDate allocationDate) {
+        this.allocationId = allocationId;
+        this.userId = userId;
+        this.userName = userName;
+        this.userEmail = userEmail;
+        this.programId = programId;
+        this.programName = programName;
+        this.allocatedById = allocatedById;
+        this.allocationDate = allocationDate;
+    }
+
+    public AllocationExportRow(int allocationId, int userId, String userName, String userEmail,
+                               int programId, String programName, Integer allocatedById, LocalDate allocationDate, boolean archived) {
+        this(allocationId, userId, userName, userEmail, programId, programName, allocatedById, allocationDate);
+        this.archived = archived;
+    }
+
+    public int getAllocationId() { return allocationId; }
+    public void setAllocationId(int allocationId) { this.allocationId = allocationId; }
+
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+
+    public String getUserName() { return userName; }
+    public void setUserName(String userName) { this.userName = userName; }
+
+    public String getUserEmail() { return userEmail; }
+    public void setUserEmail(String userEmail) { this.userEmail = userEmail; }
+
+    public int getProgramId() { return programId; }
+    public void setProgramId(int programId) { this.programId = programId; }
+
+    public String getProgramName() { return programName; }
+    public void setProgramName(String programName) { this.programName = programName; }
+
+    public Integer getAllocatedById() { return allocatedById; }
+    public void setAllocatedById(Integer allocatedById) { this.allocatedById = allocatedById; }
+
+    public LocalDate getAllocationDate() { return allocationDate; }
+    public void setAllocationDate(LocalDate allocationDate) { this.allocationDate = allocationDate; }
+
+    public boolean isArchived() { return archived; }
+    public void setArchived(boolean archived) { this.archived = archived; }
+}
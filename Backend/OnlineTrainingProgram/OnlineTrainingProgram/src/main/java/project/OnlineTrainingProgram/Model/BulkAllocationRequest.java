@@ -0,0 +1,30 @@
+package project.OnlineTrainingProgram.Model;
+
+import java.util.List;
+
+// Body of POST /api/admin/allocate-program/bulk: either an explicit userIds list or a cohort filter (role / emailDomain)
+public class BulkAllocationRequest {
+
+    private int programId;
+    private List<Integer> userIds;
+    private String role;
+    private String emailDomain;
+    private Integer allocatedById;
+
+    public BulkAllocationRequest() {}
+
+    public int getProgramId() { return programId; }
+    public void setProgramId(int programId) { this.programId = programId; }
+
+    public List<Integer> getUserIds() { return userIds; }
+    public void setUserIds(List<Integer> userIds) { this.userIds = userIds; }
+
+    public String getRole() { return role; }
+    public void setRole(String role) { this.role = role; }
+
+    public String getEmailDomain() { return emailDomain; }
+    public void setEmailDomain(String emailDomain) { this.emailDomain = emailDomain; }
+
+    public Integer getAllocatedById() { return allocatedById; }
+    public void setAllocatedById(Integer allocatedById) { this.allocatedById = allocatedById; }
+}
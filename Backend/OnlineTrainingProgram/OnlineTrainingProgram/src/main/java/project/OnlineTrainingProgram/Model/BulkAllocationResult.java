@@ -0,0 +1,44 @@
+package project.OnlineTrainingProgram.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Per-user outcome of a bulk allocation, grouped by outcome
+public class BulkAllocationResult {
+
+    private int programId;
+    private List<Integer> enrolled = new ArrayList<>();
+    private List<Integer> alreadyEnrolled = new ArrayList<>();
+    private List<Integer> userNotFound = new ArrayList<>();
+    private List<Integer> programFull = new ArrayList<>();
+
+    public BulkAllocationResult() {}
+
+    public BulkAllocationResult(int programId) {
+        this.programId = programId;
+    }
+
+    // folds one chunk's outcome into the running total
+    public void merge(BulkAllocationResult chunk) {
+        enrolled.addAll(chunk.getEnrolled());
+        alreadyEnrolled.addAll(chunk.getAlreadyEnrolled());
+        userNotFound.addAll(chunk.getUserNotFound());
+        programFull.addAll(chunk.getProgramFull());
+    }
+
+    public int getProgramId() { return programId; }
+    public void setProgramId(int programId) { this.programId = programId; }
+
+    public List<Integer> getEnrolled() { return enrolled; }
+    public void setEnrolled(List<Integer> enrolled) { this.enrolled = enrolled; }
+
+    public List<Integer> getAlreadyEnrolled() { return alreadyEnrolled; }
+    public void setAlreadyEnrolled(List<Integer> alreadyEnrolled) { this.alreadyEnrolled = alreadyEnrolled; }
+
+    public List<Integer> getUserNotFound() { return userNotFound; }
+    public void setUserNotFound(List<Integer> userNotFound) { this.userNotFound = userNotFound; }
+
+    // users left out because the program ran out of seats
+    public List<Integer> getProgramFull() { return programFull; }
+    public void setProgramFull(List<Integer> programFull) { this.programFull = programFull; }
+}
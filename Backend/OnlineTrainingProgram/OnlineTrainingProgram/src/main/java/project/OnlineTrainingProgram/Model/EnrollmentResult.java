@@ -0,0 +1,11 @@
+package project.OnlineTrainingProgram.Model;
+
+// Outcome of a single-statement enrollment (see UserTrainingAllocationDAO.enroll)
+public enum EnrollmentResult {
+    ENROLLED,
+    ALREADY_ENROLLED,
+    USER_NOT_FOUND,
+    PROGRAM_NOT_FOUND,
+    PROGRAM_FULL,       // the program has a capacity and no seat was free (see SeatLedger)
+    WAITLISTED          // the program was full and the user is on its waitlist (see Waitlist)
+}
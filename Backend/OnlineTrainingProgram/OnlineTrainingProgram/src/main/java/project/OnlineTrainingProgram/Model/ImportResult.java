@@ -0,0 +1,87 @@
+package project.OnlineTrainingProgram.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a bulk import. Row numbers count data rows from 1 (the CSV header is not a row).
+// nextOffset is the number of rows fully handled (committed or reported as failed);
+// when completed is false, send the same file again with offset=nextOffset to resume.
+public class ImportResult {
+
+    // cap on rows listed in errors, so a file full of bad rows still produces a bounded response
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private int offset;
+    private int rowsRead;
+    private int imported;
+    private int failed;
+    private int nextOffset;
+    private boolean completed;
+    private String message;
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    public ImportResult() {}
+
+    public ImportResult(int offset) {
+        this.offset = offset;
+        this.nextOffset = offset;
+    }
+
+    public void addError(int row, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(row, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+
+    public void addImported(int count) { imported += count; }
+    public void rowRead() { rowsRead++; }
+
+    public int getOffset() { return offset; }
+    public void setOffset(int offset) { this.offset = offset; }
+
+    public int getRowsRead() { return rowsRead; }
+    public void setRowsRead(int rowsRead) { this.rowsRead = rowsRead; }
+
+    public int getImported() { return imported; }
+    public void setImported(int imported) { this.imported = imported; }
+
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+
+    public int getNextOffset() { return nextOffset; }
+    public void setNextOffset(int nextOffset) { this.nextOffset = nextOffset; }
+
+    public boolean isCompleted() { return completed; }
+    public void setCompleted(boolean completed) { this.completed = completed; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public List<RowError> getErrors() { return errors; }
+    public void setErrors(List<RowError> errors) { this.errors = errors; }
+
+    public boolean isErrorsTruncated() { return errorsTruncated; }
+    public void setErrorsTruncated(boolean errorsTruncated) { this.errorsTruncated = errorsTruncated; }
+
+    public static class RowError {
+        private int row;
+        private String message;
+
+        public RowError() {}
+
+        public RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public int getRow() { return row; }
+        public void setRow(int row) { this.row = row; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+}
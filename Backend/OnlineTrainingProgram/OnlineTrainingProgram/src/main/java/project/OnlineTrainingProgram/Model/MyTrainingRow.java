@@ -0,0 +1,29 @@
+package project.OnlineTrainingProgram.Model;
+
+import java.time.LocalDate;
+
+// One of a user's trainings, as listed by "my trainings": read as three columns, no entities loaded
+public class MyTrainingRow {
+
+    private int programId;
+    private String programName;
+    private LocalDate allocationDate;
+
+    public MyTrainingRow() {}
+
+    // used by the projection query in UserTrainingAllocationDAO.getMyTrainings
+    public MyTrainingRow(int programId, String programName, LocalDate allocationDate) {
+        this.programId = programId;
+        this.programName = programName;
+        this.allocationDate = allocationDate;
+    }
+
+    public int getProgramId() { return programId; }
+    public void setProgramId(int programId) { this.programId = programId; }
+
+    public String getProgramName() { return programName; }
+    public void setProgramName(String programName) { this.programName = programName; }
+
+    public LocalDate getAllocationDate() { return allocationDate; }
+    public void setAllocationDate(LocalDate allocationDate) { this.allocationDate = allocationDate; }
+}
@@ -0,0 +1,64 @@
+package project.OnlineTrainingProgram.Model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+// One keyset page of results. nextCursor is an opaque token for the following page, null on the last page.
+public class PageModel<T> {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String CURSOR_PREFIX = "k1:";
+
+    private List<T> items;
+    private String nextCursor;
+
+    public PageModel() {}
+
+    public PageModel(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public static int clampPageSize(int limit) {
+        if (limit < 1) throw new IllegalArgumentException("limit must be at least 1");
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // rows must have been fetched with limit + 1 so we know whether another page exists without an extra count query
+    public static <T> PageModel<T> of(List<T> rows, int limit, ToIntFunction<T> idOf) {
+        if (rows.size() <= limit) {
+            return new PageModel<>(rows, null);
+        }
+        List<T> page = rows.subList(0, limit);
+        return new PageModel<>(page, encodeCursor(idOf.applyAsInt(page.get(limit - 1))));
+    }
+
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    // Cursors carry the last primary key of the previous page; clients should treat them as opaque strings
+    public static String encodeCursor(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns the id to seek after, 0 for a missing cursor; throws IllegalArgumentException for a malformed one
+    public static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return 0;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(CURSOR_PREFIX)) throw new IllegalArgumentException("Invalid cursor");
+            return Integer.parseInt(raw.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and Base64 errors both land here
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package project.OnlineTrainingProgram.Model;
+
+// A capacity-limited program and how many seats its allocations take, as counted by the database
+public class SeatUsage {
+
+    private int programId;
+    private int capacity;
+    private int taken;
+
+    public SeatUsage() {}
+
+    // used by the projection query in TrainingDAO.getSeatUsage
+    public SeatUsage(int programId, Integer capacity, long taken) {
+        this.programId = programId;
+        this.capacity = capacity;
+        this.taken = (int) taken;
+    }
+
+    public int getProgramId() { return programId; }
+    public void setProgramId(int programId) { this.programId = programId; }
+
+    public int getCapacity() { return capacity; }
+    public void setCapacity(int capacity) { this.capacity = capacity; }
+
+    public int getTaken() { return taken; }
+    public void setTaken(int taken) { this.taken = taken; }
+}
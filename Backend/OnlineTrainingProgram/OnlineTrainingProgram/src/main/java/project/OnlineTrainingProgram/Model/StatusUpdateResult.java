@@ -0,0 +1,9 @@
+package project.OnlineTrainingProgram.Model;
+
+// Outcome of a targeted status update (see TrainingDAO.updateStatus)
+public enum StatusUpdateResult {
+    UPDATED,
+    PROGRAM_NOT_FOUND,
+    // the program no longer had the status the caller expected
+    CONFLICT
+}
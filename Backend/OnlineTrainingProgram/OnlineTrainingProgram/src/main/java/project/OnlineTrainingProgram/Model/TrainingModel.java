@@ -1,5 +1,7 @@
 package project.OnlineTrainingProgram.Model;
 
+import project.OnlineTrainingProgram.Entity.TrainingProgram;
+
 public class TrainingModel {
 
 	private String ProgramName;;
@@ -8,17 +10,26 @@ public class TrainingModel {
     private double price;
     private String status;
     private int purchasedByCount; 
+    private Integer capacity;   // null = unlimited seats
 
     public TrainingModel() {}
 
     public TrainingModel(int programId,String ProgramName ,String description, double price, String status, int purchasedByCount) {
         this.programId = programId;
+        this.ProgramName = ProgramName;
         this.description = description;
         this.price = price;
         this.status = status;
         this.purchasedByCount = purchasedByCount;
     }
 
+    // used by the catalog projection query in TrainingDAO
+    public TrainingModel(int programId, String ProgramName, String description, double price,
+                         TrainingProgram.ProgramStatus status, long purchasedByCount, Integer capacity) {
+        this(programId, ProgramName, description, price, status != null ? status.name() : null, (int) purchasedByCount);
+        this.capacity = capacity;
+    }
+
     public int getProgramId() { return programId; }
     public void setProgramId(int programId) { this.programId = programId; }
 
@@ -34,6 +45,9 @@ public class TrainingModel {
     public int getPurchasedByCount() { return purchasedByCount; }
     public void setPurchasedByCount(int purchasedByCount) { this.purchasedByCount = purchasedByCount; }
 
+    public Integer getCapacity() { return capacity; }
+    public void setCapacity(Integer capacity) { this.capacity = capacity; }
+
 	public String getProgramName() { return ProgramName; }
 	public void setProgramName(String programName) { ProgramName = programName; }
 }
@@ -1,16 +1,33 @@
 package project.OnlineTrainingProgram.Model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import project.OnlineTrainingProgram.Entity.User;
+
 public class UserModel {
 
     private int userId;
     private String name;
     private String email;
     private String phoneNo;
+    // accepted from clients, never written back to them
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
     private String role;
     private int programCount; 
 
     public UserModel() {}
+
+    // used by the projection queries in UserDAO; the password is never selected
+    public UserModel(int userId, String name, String email, String phoneNo, User.Role role, long programCount) {
+        this.userId = userId;
+        this.name = name;
+        this.email = email;
+        this.phoneNo = phoneNo;
+        this.role = role != null ? role.name() : null;
+        this.programCount = (int) programCount;
+    }
+
   
     public int getUserId() { return userId; }
     public void setUserId(int userId) { this.userId = userId; }
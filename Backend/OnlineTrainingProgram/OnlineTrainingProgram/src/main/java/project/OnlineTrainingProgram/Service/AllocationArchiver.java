@@ -0,0 +1,117 @@
+package project.OnlineTrainingProgram.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import project.OnlineTrainingProgram.Dao.AllocationArchiveDAO;
+
+/**
+ * Keeps user_program_allocation, which every enrollment and dashboard query reads, down to the live working set.
+ * Every app.archive.interval, allocations of COMPLETED and CANCELLED programs are moved to
+ * user_program_allocation_archive in chunks of app.archive.chunk-size, one short transaction per chunk.
+ * With app.archive.retention set, allocations older than that are moved as well, whatever their program's status:
+ * such an enrollment has run its course, no longer takes a seat, and the user may enroll again.
+ * Archived rows are only read by reports asked for them (includeArchived=true on the allocation export, the admin
+ * user list's program counts and the under-allocated users report): they drop out of the users' my-trainings
+ * lists, and programs set back to ACTIVE do not get their archived allocations back. The schedule is therefore
+ * opt-in (app.archive.enabled); archive() can always be triggered by an admin.
+ */
+@Component
+public class AllocationArchiver implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AllocationArchiver.class);
+
+    @Autowired
+    private AllocationArchiveDAO archiveDAO;
+
+    @Autowired
+    private TrainingCatalogCache catalogCache;
+
+    @Autowired
+    private SeatLedger seatLedger;
+
+    @Autowired
+    private Waitlist waitlist;
+
+    @Value("${app.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.archive.interval:1h}")
+    private Duration interval;
+
+    @Value("${app.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    // zero: only finished programs are archived; otherwise at least a day, as allocations are dated by day
+    @Value("${app.archive.retention:0d}")
+    private Duration retention;
+
+    private ScheduledExecutorService scheduler;
+
+    // One full pass; returns how many allocations were moved. Scheduled runs and admin-triggered ones never overlap.
+    public synchronized long archive() {
+        // allocations dated before the day `retention` ago began: every one of them is at least that old
+        LocalDate cutoff = retention.isZero() ? null : LocalDateTime.now().minus(retention).toLocalDate();
+        long moved = 0;
+        int chunk;
+        try {
+            do {
+                chunk = archiveDAO.archiveChunk(cutoff, chunkSize);
+                moved += chunk;
+                if (chunk > 0) log.debug("Archived {} allocations so far", moved);
+            } while (chunk == chunkSize);
+        } finally {
+            if (moved > 0) {
+                log.info("Archived {} allocations", moved);
+                // purchase counts changed; with a retention window seats of running programs may have been freed too
+                catalogCache.invalidateAll();
+                seatLedger.reconcile();
+                waitlist.promoteAll();
+            }
+        }
+        return moved;
+    }
+
+    @Override
+    public void start() {
+        if (!retention.isZero() && retention.compareTo(Duration.ofDays(1)) < 0) {
+            throw new IllegalStateException("app.archive.retention must be 0 or at least one day, was " + retention);
+        }
+        if (!enabled) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "allocation-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archive();
+            } catch (RuntimeException e) {
+                log.warn("Allocation archiving failed: {}", e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+}
@@ -0,0 +1,71 @@
+package project.OnlineTrainingProgram.Service;
+
+import java.util.function.LongConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import project.OnlineTrainingProgram.Dao.UserTrainingAllocationDAO;
+
+/**
+ * Removes the allocations of a program or user that is about to be deleted, app.delete.chunk-size rows per
+ * DELETE statement and transaction. Cascading through the entities would load every allocation and delete them one
+ * by one inside a single transaction; here a popular program costs a handful of statements, and no lock is held
+ * longer than one chunk. A user's allocations made for others are kept, with allocated_by cleared in chunks the same
+ * way. The parent delete (TrainingDAO.deleteTrainingById, UserDAO.delete) then sweeps up allocations made in the
+ * meantime and removes the parent with a bulk statement.
+ * Progress is logged per chunk and handed to the caller's listener as the running count.
+ */
+@Component
+public class AllocationPurger {
+
+    private static final Logger log = LoggerFactory.getLogger(AllocationPurger.class);
+
+    @Value("${app.delete.chunk-size:5000}")
+    private int chunkSize;
+
+    @Autowired
+    private UserTrainingAllocationDAO allocationDAO;
+
+    // returns how many allocations were removed
+    public long purgeProgram(int programId, LongConsumer progress) {
+        return purge(true, programId, progress);
+    }
+
+    public long purgeUser(int userId, LongConsumer progress) {
+        return purge(false, userId, progress);
+    }
+
+    // allocations the user made for others stay, without an allocatedBy; returns how many were changed
+    public long clearAllocatedBy(int userId) {
+        long cleared = 0;
+        int chunk;
+        do {
+            chunk = allocationDAO.clearAllocatedByChunk(userId, chunkSize);
+            cleared += chunk;
+        } while (chunk == chunkSize);
+        if (cleared > 0) log.info("Cleared allocatedBy of {} allocations made by user {}", cleared, userId);
+        return cleared;
+    }
+
+    private long purge(boolean byProgram, int id, LongConsumer progress) {
+        String owner = (byProgram ? "program " : "user ") + id;
+        long total = allocationDAO.countByProgramOrUser(byProgram, id);
+        if (total == 0) return 0;
+        log.info("Removing {} allocations of {} in chunks of {}", total, owner, chunkSize);
+        long removed = 0;
+        int chunk;
+        do {
+            chunk = allocationDAO.deleteChunk(byProgram, id, chunkSize);
+            removed += chunk;
+            if (chunk > 0) {
+                progress.accept(removed);
+                log.info("Removed {} of {} allocations of {}", removed, total, owner);
+            }
+        } while (chunk == chunkSize);
+        return removed;
+    }
+}
@@ -0,0 +1,180 @@
+package project.OnlineTrainingProgram.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+
+/**
+ * Write-behind mode for /api/user/enroll (app.enroll-pipeline.enabled=true).
+ * Enrollments go into a bounded queue and a single writer thread drains it, committing up to max-batch of them
+ * per transaction with UserTrainingAllocationService.enrollAll. There is no artificial delay: whatever piles up
+ * while one batch commits becomes the next batch, so batches only grow when the load does.
+ * Each caller's future completes after its batch has committed, or exceptionally when the batch failed (the
+ * writer survives any failure) or the pipeline stopped before reaching it (RejectedExecutionException).
+ * When the queue is full, submit returns null and the caller should answer 503 with Retry-After.
+ */
+@Component
+public class EnrollmentPipeline implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrollmentPipeline.class);
+
+    // 3 bind parameters per row keeps the multi-row INSERT well under PostgreSQL's 65535 parameter limit
+    private static final int MAX_BATCH_LIMIT = 5000;
+
+    private record Pending(int userId, int programId, CompletableFuture<EnrollmentResult> result) {}
+
+    @Autowired
+    private UserTrainingAllocationService allocationService;
+
+    private final boolean enabled;
+    private final int maxBatch;
+    private final Duration retryAfter;
+    private final Duration responseTimeout;
+    private final BlockingQueue<Pending> queue;
+    private final DistributionSummary batchSizes;
+    private volatile boolean running;
+    private Thread writer;
+
+    public EnrollmentPipeline(@Value("${app.enroll-pipeline.enabled:false}") boolean enabled,
+                              @Value("${app.enroll-pipeline.queue-capacity:10000}") int queueCapacity,
+                              @Value("${app.enroll-pipeline.max-batch:500}") int maxBatch,
+                              @Value("${app.enroll-pipeline.retry-after:1s}") Duration retryAfter,
+                              @Value("${app.enroll-pipeline.response-timeout:10s}") Duration responseTimeout,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.maxBatch = Math.max(1, Math.min(maxBatch, MAX_BATCH_LIMIT));
+        this.retryAfter = retryAfter;
+        this.responseTimeout = responseTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null && enabled) {
+            Gauge.builder("app.enroll.pipeline.queued", queue, BlockingQueue::size)
+                    .description("Enrollments waiting for the writer").register(registry);
+            batchSizes = DistributionSummary.builder("app.enroll.pipeline.batch.size")
+                    .description("Enrollments committed per transaction").register(registry);
+        } else {
+            batchSizes = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    // how long a request should wait for its batch before giving up with a 503
+    public Duration getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    // Queues one enrollment; null when the queue is full (or the pipeline is stopping)
+    public CompletableFuture<EnrollmentResult> submit(int userId, int programId) {
+        if (!running) return null;
+        Pending pending = new Pending(userId, programId, new CompletableFuture<>());
+        if (!queue.offer(pending)) return null;
+        // stop() may have come in between: take it back unless the writer already has it
+        if (!running && queue.remove(pending)) return null;
+        return pending.result();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        writer = new Thread(this::drain, "enroll-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // stops taking new work, lets the writer commit what is already queued, then returns
+    @Override
+    public void stop() {
+        if (writer == null) return;
+        running = false;
+        try {
+            writer.join(responseTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                break;
+            } catch (Throwable t) {
+                // nothing may leave a caller waiting or kill the writer
+                log.error("Enrollment batch of {} failed", batch.size(), t);
+                batch.forEach(pending -> pending.result().completeExceptionally(t));
+            } finally {
+                batch.clear();
+            }
+        }
+        // only left behind when interrupted, or by a submit that raced stop()
+        queue.drainTo(batch);
+        RejectedExecutionException stopped = new RejectedExecutionException("Enrollment pipeline stopped");
+        batch.forEach(pending -> pending.result().completeExceptionally(stopped));
+    }
+
+    private void write(List<Pending> batch) {
+        List<Integer> userIds = new ArrayList<>(batch.size());
+        List<Integer> programIds = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            userIds.add(pending.userId());
+            programIds.add(pending.programId());
+        }
+        try {
+            List<EnrollmentResult> results = allocationService.enrollAll(userIds, programIds);
+            if (batchSizes != null) batchSizes.record(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            // don't let one bad row fail its neighbours: replay the batch one enrollment at a time
+            log.warn("Enrollment batch of {} failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (Pending pending : batch) {
+                try {
+                    pending.result().complete(allocationService.enrollOrWaitlist(pending.userId(), pending.programId(), null));
+                } catch (RuntimeException rowFailure) {
+                    pending.result().completeExceptionally(rowFailure);
+                }
+            }
+        }
+    }
+}
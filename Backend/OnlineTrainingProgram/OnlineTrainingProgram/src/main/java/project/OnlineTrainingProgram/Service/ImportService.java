@@ -0,0 +1,299 @@
+package project.OnlineTrainingProgram.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import project.OnlineTrainingProgram.Config.PasswordHasher;
+import project.OnlineTrainingProgram.Dao.TrainingDAO;
+import project.OnlineTrainingProgram.Dao.UserDAO;
+import project.OnlineTrainingProgram.Entity.TrainingProgram;
+import project.OnlineTrainingProgram.Model.ImportResult;
+import project.OnlineTrainingProgram.Model.TrainingModel;
+import project.OnlineTrainingProgram.Model.UserModel;
+
+/**
+ * Bulk import of users and training programs from CSV (first line is the header) or NDJSON (one object per line).
+ * The upload is read line by line and written in chunks, one transaction per chunk, so memory use does not
+ * depend on the file size. Rows that fail validation are reported and skipped; the rest of the file still loads.
+ */
+@Service
+public class ImportService {
+
+    public static final int MAX_CHUNK_SIZE = 10000;
+
+    @Value("${app.import.chunk-size:500}")
+    private int defaultChunkSize;
+
+    @Autowired
+    private UserDAO userDAO;
+
+    @Autowired
+    private TrainingDAO trainingDAO;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TrainingCatalogCache catalogCache;
+
+    @Autowired
+    private SeatLedger seatLedger;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    // CSV header: name,email,password,phoneNo,role (role defaults to USER)
+    public ImportResult importUsers(InputStream in, String format, Integer chunkSize, int offset) {
+        return run(in, format, chunkSize, offset, UserModel.class, this::userFromCsv, this::validateUser,
+                   this::dropExistingEmails, this::insertUsers);
+    }
+
+    // CSV header: programName,description,price,status,capacity (status defaults to ACTIVE, no capacity = unlimited)
+    public ImportResult importTrainings(InputStream in, String format, Integer chunkSize, int offset) {
+        try {
+            return run(in, format, chunkSize, offset, TrainingModel.class, this::trainingFromCsv, this::validateTraining,
+                       (rows, result) -> rows, trainingDAO::insertAll);
+        } finally {
+            catalogCache.invalidateAll();
+            seatLedger.reconcile();
+        }
+    }
+
+    // passwords are hashed per chunk, a few at a time on the hasher pool, right before the insert;
+    // the models keep the raw password, so a chunk replayed row by row is hashed from the original again
+    private void insertUsers(List<UserModel> users) {
+        userDAO.insertAll(users, passwordHasher.hashAll(users.stream().map(UserModel::getPassword).toList()));
+    }
+
+    private record Row<T>(int number, T item) {}
+
+    // last look at a full chunk before it is written, e.g. to drop rows that clash with data already stored
+    private interface ChunkFilter<T> {
+        List<Row<T>> apply(List<Row<T>> rows, ImportResult result);
+    }
+
+    private <T> ImportResult run(InputStream in, String format, Integer chunkSize, int offset, Class<T> type,
+                                 Function<Map<String, String>, T> fromCsv, Function<T, String> validate,
+                                 ChunkFilter<T> filter, Consumer<List<T>> insert) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        if (format != null && !ndjson && !"csv".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("format must be csv or ndjson");
+        }
+        int size = chunkSize != null ? chunkSize : defaultChunkSize;
+        if (size < 1 || size > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be between 1 and " + MAX_CHUNK_SIZE);
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
+        }
+
+        ImportResult result = new ImportResult(offset);
+        List<Row<T>> chunk = new ArrayList<>(size);
+        int rowNumber = 0;
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            List<String> header = null;
+            if (!ndjson) {
+                String line = nextLine(reader);
+                if (line == null) {
+                    result.setCompleted(true);
+                    return result;
+                }
+                header = parseCsvLine(line);
+            }
+            String line;
+            while ((line = nextLine(reader)) != null) {
+                rowNumber++;
+                if (rowNumber <= offset) continue;   // already handled by an earlier run
+                result.rowRead();
+                T item;
+                String error;
+                try {
+                    item = ndjson ? objectMapper.readValue(line, type) : fromCsv.apply(toRecord(header, parseCsvLine(line)));
+                    error = validate.apply(item);
+                } catch (Exception e) {
+                    item = null;
+                    error = "Malformed row";
+                }
+                if (error != null) {
+                    result.addError(rowNumber, error);
+                } else {
+                    chunk.add(new Row<>(rowNumber, item));
+                }
+                if (chunk.size() == size) {
+                    writeChunk(chunk, filter, insert, result);
+                    result.setNextOffset(rowNumber);
+                }
+            }
+            writeChunk(chunk, filter, insert, result);
+            result.setNextOffset(rowNumber);
+            result.setCompleted(true);
+        } catch (IOException | RuntimeException e) {
+            // upload cut off or database unavailable: rows up to nextOffset are committed, resume from there
+            result.setMessage("Import stopped at row " + (result.getNextOffset() + 1) + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    private <T> void writeChunk(List<Row<T>> chunk, ChunkFilter<T> filter, Consumer<List<T>> insert, ImportResult result) {
+        List<Row<T>> rows = filter.apply(chunk, result);
+        if (!rows.isEmpty()) {
+            List<T> items = new ArrayList<>(rows.size());
+            for (Row<T> row : rows) items.add(row.item());
+            try {
+                insert.accept(items);
+                result.addImported(items.size());
+            } catch (DataIntegrityViolationException e) {
+                // one bad row rolls back the whole chunk; replay it row by row to find which ones the database rejects
+                for (Row<T> row : rows) {
+                    try {
+                        insert.accept(List.of(row.item()));
+                        result.addImported(1);
+                    } catch (DataIntegrityViolationException rowError) {
+                        result.addError(row.number(), "Rejected by database: " + rowError.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+        }
+        chunk.clear();
+    }
+
+    // skips blank lines so row numbers (and resume offsets) only count real rows
+    private static String nextLine(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) return line;
+        }
+        return null;
+    }
+
+    // One CSV record per line; fields may be double-quoted, with "" standing for a literal quote
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private static Map<String, String> toRecord(List<String> header, List<String> values) {
+        if (values.size() != header.size()) {
+            throw new IllegalArgumentException("expected " + header.size() + " fields");
+        }
+        Map<String, String> record = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            record.put(header.get(i).toLowerCase(), values.get(i).isEmpty() ? null : values.get(i));
+        }
+        return record;
+    }
+
+    private UserModel userFromCsv(Map<String, String> record) {
+        UserModel user = new UserModel();
+        user.setName(record.get("name"));
+        user.setEmail(record.get("email"));
+        user.setPassword(record.get("password"));
+        user.setPhoneNo(record.get("phoneno"));
+        user.setRole(record.get("role"));
+        return user;
+    }
+
+    private TrainingModel trainingFromCsv(Map<String, String> record) {
+        TrainingModel training = new TrainingModel();
+        training.setProgramName(record.get("programname"));
+        training.setDescription(record.get("description"));
+        training.setPrice(record.get("price") != null ? Double.parseDouble(record.get("price")) : -1);
+        training.setStatus(record.get("status"));
+        String capacity = record.get("capacity");
+        training.setCapacity(capacity != null && !capacity.isBlank() ? Integer.valueOf(capacity.trim()) : null);
+        return training;
+    }
+
+    // same rules as signup; returns the error message, or null when the row is fine
+    private String validateUser(UserModel user) {
+        if (isBlank(user.getName()) || isBlank(user.getEmail()) || isBlank(user.getPassword())) {
+            return "name, email and password are required";
+        }
+        user.setEmail(user.getEmail().toLowerCase().trim());
+        if (!user.getEmail().contains("@")) return "Invalid email";
+        if (user.getPhoneNo() != null && user.getPhoneNo().length() > 15) return "phoneNo longer than 15 characters";
+        String role = isBlank(user.getRole()) ? "USER" : user.getRole().trim().toUpperCase();
+        if (!role.equals("USER") && !role.equals("ADMIN")) return "Role must be USER or ADMIN";
+        user.setRole(role);
+        return null;
+    }
+
+    private String validateTraining(TrainingModel training) {
+        if (isBlank(training.getProgramName()) || isBlank(training.getDescription())) {
+            return "programName and description are required";
+        }
+        if (training.getPrice() < 0) return "price must be a non-negative number";
+        if (training.getCapacity() != null && training.getCapacity() <= 0) return "capacity must be a positive number";
+        String status = isBlank(training.getStatus()) ? "ACTIVE" : training.getStatus().trim().toUpperCase();
+        try {
+            TrainingProgram.ProgramStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            return "status must be ACTIVE, COMPLETED or CANCELLED";
+        }
+        training.setStatus(status);
+        return null;
+    }
+
+    // one query per chunk instead of one lookup per row; also catches duplicates inside the chunk itself
+    // emails are compared lower-cased on both sides: accounts created through signup keep the case they were typed in
+    private List<Row<UserModel>> dropExistingEmails(List<Row<UserModel>> rows, ImportResult result) {
+        List<String> emails = new ArrayList<>(rows.size());
+        for (Row<UserModel> row : rows) emails.add(row.item().getEmail().toLowerCase());
+        Set<String> taken = new HashSet<>(userDAO.findExistingEmails(emails));
+        List<Row<UserModel>> fresh = new ArrayList<>(rows.size());
+        for (Row<UserModel> row : rows) {
+            if (taken.add(row.item().getEmail().toLowerCase())) {
+                fresh.add(row);
+            } else {
+                result.addError(row.number(), "Email already exists");
+            }
+        }
+        return fresh;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,203 @@
+package project.OnlineTrainingProgram.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import project.OnlineTrainingProgram.Dao.TrainingDAO;
+import project.OnlineTrainingProgram.Model.SeatUsage;
+
+/**
+ * In-memory seat counts for programs with a capacity, so enrollment is admitted without a COUNT(*) per request.
+ * Each limited program has one atomic reference to an immutable (taken, pending, releasing, version) state: a reservation is
+ * a single CAS that only succeeds while taken < capacity, so concurrent enrollments can never oversell, and once a
+ * program is full callers are turned away with a plain read (a sold-out hot program causes no CAS traffic at all).
+ * Every reserve, confirm, cancel and release installs a state with the next version.
+ * Callers reserve before inserting, then confirm (row committed) or cancel (nothing inserted). Deletes are bracketed
+ * the same way: markRelease before the DELETE, then release (row gone, seat freed) or keep (nothing deleted).
+ * Programs without a capacity have no entry and are always admitted.
+ * The counts are loaded from the database at startup and reconciled every app.seats.reconcile-interval
+ * (and after writes that bypass the ledger, like deleting a user); a program is only corrected while it has no
+ * reservations or releases in flight and its version is still the one seen before the query, so a reconcile can
+ * never hand out a seat that an uncommitted insert is holding, count a committed delete whose release is still to
+ * come (which would free its seat twice), nor undo a reserve and release that ran during the query and left the
+ * same counts behind.
+ * Seats are counted per instance: with several instances each one needs its own share of the capacity.
+ */
+@Component
+public class SeatLedger implements SmartInitializingSingleton, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatLedger.class);
+
+    // pending: reservations not yet confirmed or cancelled; releasing: deletes marked but not yet settled
+    private record State(int taken, int pending, int releasing, long version) {
+        State next(int taken, int pending) {
+            return next(taken, pending, releasing);
+        }
+
+        State next(int taken, int pending, int releasing) {
+            return new State(taken, pending, releasing, version + 1);
+        }
+    }
+
+    private static final class Seats {
+        volatile int capacity;
+        final AtomicReference<State> state;
+
+        Seats(int capacity, int taken) {
+            this.capacity = capacity;
+            this.state = new AtomicReference<>(new State(taken, 0, 0, 0));
+        }
+    }
+
+    @Autowired
+    private TrainingDAO trainingDAO;
+
+    @Value("${app.seats.reconcile-interval:5m}")
+    private Duration reconcileInterval;
+
+    private final Map<Integer, Seats> seats = new ConcurrentHashMap<>();
+    private ScheduledExecutorService reconciler;
+
+    // Takes one seat; true when it was free or the program has no capacity
+    public boolean tryReserve(int programId) {
+        return tryReserve(programId, 1) == 1;
+    }
+
+    // Takes up to `wanted` seats at once and returns how many were granted (all of them for an unlimited program)
+    public int tryReserve(int programId, int wanted) {
+        Seats program = seats.get(programId);
+        if (program == null) return wanted;
+        while (true) {
+            State s = program.state.get();
+            int free = program.capacity - s.taken();
+            if (free <= 0) return 0;
+            int granted = Math.min(wanted, free);
+            if (program.state.compareAndSet(s, s.next(s.taken() + granted, s.pending() + granted))) return granted;
+        }
+    }
+
+    // `count` reservations became allocations
+    public void confirm(int programId, int count) {
+        Seats program = seats.get(programId);
+        if (program != null && count > 0) program.state.updateAndGet(s -> s.next(s.taken(), s.pending() - count));
+    }
+
+    // `count` reservations were not used (duplicate, unknown user, failed transaction): give the seats back
+    public void cancel(int programId, int count) {
+        Seats program = seats.get(programId);
+        if (program != null && count > 0) program.state.updateAndGet(s -> s.next(s.taken() - count, s.pending() - count));
+    }
+
+    // an allocation of the program is about to be deleted (or moved away); settle with release or keep
+    public void markRelease(int programId) {
+        Seats program = seats.get(programId);
+        if (program != null) program.state.updateAndGet(s -> s.next(s.taken(), s.pending(), s.releasing() + 1));
+    }
+
+    // the marked allocation is gone: its seat is free
+    public void release(int programId) {
+        Seats program = seats.get(programId);
+        if (program != null) {
+            program.state.updateAndGet(s -> s.next(Math.max(0, s.taken() - 1), s.pending(), Math.max(0, s.releasing() - 1)));
+        }
+    }
+
+    // the marked allocation was not deleted after all
+    public void keep(int programId) {
+        Seats program = seats.get(programId);
+        if (program != null) program.state.updateAndGet(s -> s.next(s.taken(), s.pending(), Math.max(0, s.releasing() - 1)));
+    }
+
+    public void forget(int programId) {
+        seats.remove(programId);
+    }
+
+    // free seats, or null when the program has no capacity (or is unknown)
+    public Integer available(int programId) {
+        Seats program = seats.get(programId);
+        return program == null ? null : Math.max(0, program.capacity - program.state.get().taken());
+    }
+
+    // Reloads every capacity-limited program from the database
+    public void reconcile() {
+        reconcile(null);
+    }
+
+    // Reloads one program (or all when programId is null); call after its capacity is set or changed
+    public void reconcile(Integer programId) {
+        // snapshot before the query: a state still current afterwards (same version) saw no seat change in between
+        Map<Integer, State> before = new HashMap<>();
+        seats.forEach((id, program) -> {
+            if (programId == null || programId.equals(id)) before.put(id, program.state.get());
+        });
+        List<SeatUsage> usage = trainingDAO.getSeatUsage(programId);
+        Set<Integer> limited = new HashSet<>();
+        for (SeatUsage u : usage) {
+            limited.add(u.getProgramId());
+            Seats program = seats.get(u.getProgramId());
+            if (program == null) {
+                seats.putIfAbsent(u.getProgramId(), new Seats(u.getCapacity(), u.getTaken()));
+                continue;
+            }
+            program.capacity = u.getCapacity();
+            State s = before.get(u.getProgramId());
+            if (s == null || s.pending() != 0 || s.releasing() != 0 || s.taken() == u.getTaken()) continue;
+            // every seat change installs a new state, so this only succeeds if the version is unchanged
+            if (program.state.compareAndSet(s, s.next(u.getTaken(), 0, 0))) {
+                log.info("Seat count of program {} corrected from {} to {}", u.getProgramId(), s.taken(), u.getTaken());
+            }
+        }
+        // capacity removed or program deleted
+        before.keySet().stream().filter(id -> !limited.contains(id)).forEach(seats::remove);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reconcile();
+    }
+
+    @Override
+    public void start() {
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "seat-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = reconcileInterval.toMillis();
+        reconciler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.warn("Seat reconciliation failed: {}", e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (reconciler != null) reconciler.shutdownNow();
+        reconciler = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return reconciler != null;
+    }
+}
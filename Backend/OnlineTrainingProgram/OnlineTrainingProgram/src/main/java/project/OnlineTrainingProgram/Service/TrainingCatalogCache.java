@@ -0,0 +1,167 @@
+package project.OnlineTrainingProgram.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import project.OnlineTrainingProgram.Model.TrainingModel;
+
+/**
+ * In-process cache for the training catalog read by TrainingService.
+ * - the full catalog is kept as one snapshot, which also answers lookups by id
+ * - single programs read while no snapshot is loaded go to a small LRU map (app.catalog-cache.max-entries)
+ * - everything expires after app.catalog-cache.ttl, which also bounds staleness between several app instances
+ * Any write to a program or to its allocations (purchasedByCount) calls invalidate, which bumps the version
+ * so a load that started before the write can never put the old data back.
+ * Callers always get copies, so mutating a returned model does not touch the cache.
+ */
+@Component
+public class TrainingCatalogCache {
+
+    @Value("${app.catalog-cache.ttl:5m}")
+    private Duration ttl;
+
+    @Value("${app.catalog-cache.max-entries:1000}")
+    private int maxEntries;
+
+    private record Snapshot(List<TrainingModel> trainings, Map<Integer, TrainingModel> byId, long expiresAt) {}
+
+    private record Entry(TrainingModel training, long expiresAt) {}
+
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Snapshot catalog;
+
+    // guarded by this
+    private final LinkedHashMap<Integer, Entry> programs = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public List<TrainingModel> getAll(Supplier<List<TrainingModel>> loader) {
+        Snapshot snapshot = catalog;
+        if (snapshot != null && !expired(snapshot.expiresAt())) {
+            hits.increment();
+            return copyAll(snapshot.trainings());
+        }
+        misses.increment();
+        if (snapshot != null) evictions.increment();
+        long loadVersion = version.get();
+        List<TrainingModel> loaded = loader.get();
+        Map<Integer, TrainingModel> byId = new HashMap<>();
+        List<TrainingModel> cached = copyAll(loaded);
+        for (TrainingModel training : cached) byId.put(training.getProgramId(), training);
+        Snapshot fresh = new Snapshot(List.copyOf(cached), byId, System.nanoTime() + ttl.toNanos());
+        synchronized (this) {
+            if (version.get() == loadVersion) catalog = fresh;
+        }
+        return loaded;
+    }
+
+    public TrainingModel get(int programId, IntFunction<TrainingModel> loader) {
+        Snapshot snapshot = catalog;
+        if (snapshot != null && !expired(snapshot.expiresAt())) {
+            hits.increment();
+            return copy(snapshot.byId().get(programId));   // not in the snapshot means no such program
+        }
+        synchronized (this) {
+            Entry entry = programs.get(programId);
+            if (entry != null) {
+                if (!expired(entry.expiresAt())) {
+                    hits.increment();
+                    return copy(entry.training());
+                }
+                programs.remove(programId);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        long loadVersion = version.get();
+        TrainingModel loaded = loader.apply(programId);
+        if (loaded != null) {
+            Entry fresh = new Entry(copy(loaded), System.nanoTime() + ttl.toNanos());
+            synchronized (this) {
+                if (version.get() == loadVersion) programs.put(programId, fresh);
+            }
+        }
+        return loaded;
+    }
+
+    // a program or its allocations changed: drop that program and the catalog snapshot
+    public synchronized void invalidate(int programId) {
+        version.incrementAndGet();
+        catalog = null;
+        programs.remove(programId);
+        invalidations.increment();
+    }
+
+    // several programs may have changed (bulk writes, user deletes cascading to allocations)
+    public synchronized void invalidateAll() {
+        version.incrementAndGet();
+        catalog = null;
+        programs.clear();
+        invalidations.increment();
+    }
+
+    // changes on every invalidation
+    public long version() {
+        return version.get();
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        int entries;
+        synchronized (this) {
+            entries = programs.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("catalogCached", catalog != null);
+        stats.put("programEntries", entries);
+        stats.put("version", version.get());
+        return stats;
+    }
+
+    private static boolean expired(long expiresAt) {
+        return System.nanoTime() - expiresAt >= 0;
+    }
+
+    private static List<TrainingModel> copyAll(List<TrainingModel> trainings) {
+        List<TrainingModel> copies = new ArrayList<>(trainings.size());
+        for (TrainingModel training : trainings) copies.add(copy(training));
+        return copies;
+    }
+
+    private static TrainingModel copy(TrainingModel m) {
+        if (m == null) return null;
+        TrainingModel copy = new TrainingModel(m.getProgramId(), m.getProgramName(), m.getDescription(), m.getPrice(), m.getStatus(), m.getPurchasedByCount());
+        copy.setCapacity(m.getCapacity());
+        return copy;
+    }
+}
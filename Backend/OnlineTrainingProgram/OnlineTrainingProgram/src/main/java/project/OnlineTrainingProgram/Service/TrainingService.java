@@ -3,38 +3,130 @@ package project.OnlineTrainingProgram.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import project.OnlineTrainingProgram.Dao.TrainingDAO;
+import project.OnlineTrainingProgram.Entity.TrainingProgram.ProgramStatus;
+import project.OnlineTrainingProgram.Model.PageModel;
+import project.OnlineTrainingProgram.Model.StatusUpdateResult;
 import project.OnlineTrainingProgram.Model.TrainingModel;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 @Service
 public class TrainingService {
     @Autowired
     private TrainingDAO trainingDAO;
+
+    @Autowired
+    private TrainingCatalogCache catalogCache;
+
+    @Autowired
+    private AllocationPurger allocationPurger;
+
+    @Autowired
+    private SeatLedger seatLedger;
+
+    @Autowired
+    private Waitlist waitlist;
     
+    // catalog reads are served by catalogCache; every write below invalidates it once the DAO has committed
     public void saveTraining(TrainingModel trainingModel) {
+        if (trainingModel.getCapacity() != null && trainingModel.getCapacity() <= 0) {
+            throw new IllegalArgumentException("capacity must be a positive number (leave it out for unlimited seats)");
+        }
         trainingDAO.save(trainingModel);
+        catalogCache.invalidate(trainingModel.getProgramId());
+        // picks up a new or changed capacity
+        seatLedger.reconcile(trainingModel.getProgramId());
+        // a raised (or removed) capacity has seats for the waitlist
+        waitlist.seatFreed(trainingModel.getProgramId());
+    }
+
+    // Sets (or with null removes) a program's seat limit; false when the program does not exist
+    public boolean updateCapacity(int programId, Integer capacity) {
+        if (capacity != null && capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be a positive number (null for unlimited seats)");
+        }
+        if (!trainingDAO.updateCapacity(programId, capacity)) return false;
+        catalogCache.invalidate(programId);
+        seatLedger.reconcile(programId);
+        waitlist.seatFreed(programId);
+        return true;
     }
 
     public TrainingModel getTrainingById(int id) {
-        return trainingDAO.getTrainingById(id);
+        return catalogCache.get(id, trainingDAO::getTrainingById);
     }
     
 	public TrainingModel  getProgramById(int programId) {
-		return trainingDAO.getProgramById(programId);
+		return catalogCache.get(programId, trainingDAO::getProgramById);
 	}
     public List<TrainingModel> getAllTrainings() {
-        return trainingDAO.getAllTrainings();
+        return catalogCache.getAll(trainingDAO::getAllTrainings);
     }
+    public PageModel<TrainingModel> getTrainingsPage(String cursor, int limit) {
+        int pageSize = PageModel.clampPageSize(limit);
+        return PageModel.of(trainingDAO.getTrainingsAfter(PageModel.decodeCursor(cursor), pageSize + 1), pageSize, TrainingModel::getProgramId);
+    }
+    // Sets one program's status; expectedStatus (optional) is the status the caller last saw
+    public StatusUpdateResult updateTrainingStatus(int programId, String status, String expectedStatus) {
+        ProgramStatus target = parseStatus(status);
+        ProgramStatus expected = expectedStatus != null && !expectedStatus.isBlank() ? parseStatus(expectedStatus) : null;
+        StatusUpdateResult result = trainingDAO.updateStatus(programId, target, expected);
+        if (result == StatusUpdateResult.UPDATED) catalogCache.invalidate(programId);
+        return result;
+    }
+
+    // Moves every program in status `from` (optionally only those in programIds) to status `to`; returns how many changed
+    public int transitionStatus(String from, String to, List<Integer> programIds) {
+        ProgramStatus source = parseStatus(from);
+        ProgramStatus target = parseStatus(to);
+        if (source == target) {
+            throw new IllegalArgumentException("from and to must differ");
+        }
+        if (programIds != null && programIds.isEmpty()) return 0;
+        int updated = trainingDAO.updateStatusWhere(source, target, programIds);
+        if (updated > 0) catalogCache.invalidateAll();
+        return updated;
+    }
+
+    private static ProgramStatus parseStatus(String status) {
+        try {
+            return ProgramStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Status must be ACTIVE, COMPLETED or CANCELLED");
+        }
+    }
+
     public boolean removeTrainingProgram(int programId) {
+    	return removeTrainingProgram(programId, removed -> {});
+    }
+
+    // the allocations are removed in chunks first (`progress` gets the running count), then the program in one statement
+    public boolean removeTrainingProgram(int programId, LongConsumer progress) {
     	try {
-    		return trainingDAO.deleteTrainingById(programId);
+    		allocationPurger.purgeProgram(programId, progress);
+    		boolean removed = trainingDAO.deleteTrainingById(programId);
+    		// its waitlist rows went with it
+    		if (removed) waitlist.forget(programId);
+    		return removed;
     	} catch(Exception e) {
     		System.out.println("Error removing training program"+e.getMessage());
     		return false;
+    	} finally {
+    		catalogCache.invalidate(programId);
+    		seatLedger.reconcile(programId);
     	}
     }
-    public void deleteTraining(int id) {
-        trainingDAO.delete(id);
+    // returns how many allocations went with the program
+    public long deleteTraining(int id) {
+        try {
+            long removed = allocationPurger.purgeProgram(id, n -> {});
+            trainingDAO.delete(id);
+            waitlist.forget(id);
+            return removed;
+        } finally {
+            catalogCache.invalidate(id);
+            seatLedger.reconcile(id);
+        }
     }
 
 
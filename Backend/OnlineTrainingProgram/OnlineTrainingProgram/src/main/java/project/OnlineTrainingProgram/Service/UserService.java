@@ -2,16 +2,44 @@ package project.OnlineTrainingProgram.Service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import project.OnlineTrainingProgram.Config.PasswordHasher;
 import project.OnlineTrainingProgram.Dao.UserDAO;
+import project.OnlineTrainingProgram.Entity.User.Role;
+import project.OnlineTrainingProgram.Model.PageModel;
 import project.OnlineTrainingProgram.Model.UserModel;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 @Service
 public class UserService {
 
 	@Autowired
     private UserDAO userDAO;
+
+    // deleting a user cascades to their allocations, which changes program enrollment counts
+    @Autowired
+    private TrainingCatalogCache catalogCache;
+
+    @Autowired
+    private SeatLedger seatLedger;
+
+    @Autowired
+    private Waitlist waitlist;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private AllocationPurger allocationPurger;
+
+    // Whatever the client sends as a password is hashed, even if it looks like a hash already;
+    // an update without a password keeps the stored one
     public void saveUser(UserModel userModel) {
+        if (userModel.getPassword() == null || userModel.getPassword().isBlank()) {
+            userModel.setPassword(null);
+        } else {
+            userModel.setPassword(passwordHasher.hash(userModel.getPassword()));
+        }
         userDAO.save(userModel);
     }
 
@@ -19,17 +47,74 @@ public class UserService {
         return userDAO.getUserById(userId);
     }
 
+    public boolean userExists(int userId) {
+        return userDAO.exists(userId);
+    }
+
     public List<UserModel> getAllUsers() {
         return userDAO.getAllUsers();
     }
 
-    public void deleteUser(int id) {
-        userDAO.delete(id);
+    public PageModel<UserModel> getUsersPage(String cursor, int limit) {
+        return getUsersPage(cursor, limit, false);
+    }
+
+    // includeArchived: program counts also cover allocations moved to the archive
+    public PageModel<UserModel> getUsersPage(String cursor, int limit, boolean includeArchived) {
+        int pageSize = PageModel.clampPageSize(limit);
+        return PageModel.of(userDAO.getUsersAfter(PageModel.decodeCursor(cursor), pageSize + 1, includeArchived), pageSize, UserModel::getUserId);
+    }
+
+    // returns how many allocations went with the user
+    public long deleteUser(int id) {
+        return deleteUser(id, removed -> {});
+    }
+
+    // the allocations are removed in chunks first (`progress` gets the running count) and the ones the user made for
+    // others are detached from them in chunks, then the user goes in one statement
+    public long deleteUser(int id, LongConsumer progress) {
+        try {
+            long removed = allocationPurger.purgeUser(id, progress);
+            allocationPurger.clearAllocatedBy(id);
+            userDAO.delete(id);
+            return removed;
+        } finally {
+            catalogCache.invalidateAll();
+            // the user's allocations went with them (possibly only some chunks, on failure); give their seats back
+            seatLedger.reconcile();
+            waitlist.promoteAll();
+        }
     }
     public UserModel getUserByEmail(String email) {
     	return userDAO.getUserByEmail(email);
     }
+    // One query, then the hash check on PasswordHasher's pool; null for an unknown email or a wrong password.
+    // Throws RejectedExecutionException when the hasher is saturated. Outdated hashes (and plain text passwords from
+    // before hashing) are replaced in the background once the password has been proven right.
     public UserModel authenticate(String email, String password) {
-        return userDAO.authenticate(email, password);
+        UserModel user = userDAO.getCredentialsByEmail(email);
+        PasswordHasher.Verification verification = passwordHasher.verify(password, user != null ? user.getPassword() : null);
+        if (verification == PasswordHasher.Verification.NO_MATCH) return null;
+        if (verification == PasswordHasher.Verification.MATCH_NEEDS_REHASH) {
+            int userId = user.getUserId();
+            passwordHasher.rehashLater(password, hash -> userDAO.updatePassword(userId, hash));
+        }
+        user.setPassword(null);
+        return user;
+    }
+
+    // Users with fewer than `threshold` programs, one keyset page at a time; role is optional (null/blank = all)
+    public PageModel<UserModel> getUnderAllocatedUsers(int threshold, String role, boolean includeArchived, String cursor, int limit) {
+        Role roleFilter = null;
+        if (role != null && !role.isBlank()) {
+            try {
+                roleFilter = Role.valueOf(role.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Role must be USER or ADMIN");
+            }
+        }
+        int pageSize = PageModel.clampPageSize(limit);
+        List<UserModel> rows = userDAO.getUsersWithProgramCountBelow(threshold, roleFilter, includeArchived, PageModel.decodeCursor(cursor), pageSize + 1);
+        return PageModel.of(rows, pageSize, UserModel::getUserId);
     }
 }
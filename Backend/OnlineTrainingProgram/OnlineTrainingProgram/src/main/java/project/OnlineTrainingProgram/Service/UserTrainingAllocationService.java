@@ -1,49 +1,384 @@
 package project.OnlineTrainingProgram.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import project.OnlineTrainingProgram.Dao.UserTrainingAllocationDAO;
+import project.OnlineTrainingProgram.Entity.User;
+import project.OnlineTrainingProgram.Model.AllocationExportRow;
+import project.OnlineTrainingProgram.Model.BulkAllocationRequest;
+import project.OnlineTrainingProgram.Model.BulkAllocationResult;
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+import project.OnlineTrainingProgram.Model.MyTrainingRow;
+import project.OnlineTrainingProgram.Model.PageModel;
 import project.OnlineTrainingProgram.Model.UserTrainingAllocationModel;
 
 
 @Service
 public class UserTrainingAllocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserTrainingAllocationService.class);
+
     // Save ProgramAllocation entity directly
     public void saveAllocationEntity(project.OnlineTrainingProgram.Entity.ProgramAllocation allocation) {
-        allocationDAO.saveEntity(allocation);
+        int programId = allocation.getProgram().getProgramId();
+        reserveOrThrow(programId);
+        try {
+            allocationDAO.saveEntity(allocation);
+        } catch (RuntimeException e) {
+            seatLedger.cancel(programId, 1);
+            throw e;
+        }
+        seatLedger.confirm(programId, 1);
+        catalogCache.invalidateAll();
     }
 
     @Autowired
     private UserTrainingAllocationDAO allocationDAO;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // allocation writes change the catalog's purchasedByCount
+    @Autowired
+    private TrainingCatalogCache catalogCache;
+
+    // every path that adds or removes allocations keeps the seat counts in step
+    @Autowired
+    private SeatLedger seatLedger;
+
+    // full programs queue self-enrollments; freed seats go to the first waiter
+    @Autowired
+    private Waitlist waitlist;
+
+    // export rows written between flushes to the client
+    private static final int EXPORT_FLUSH_ROWS = 1000;
+
+    // Single-statement enrollment; allocatedById may be null when the user enrolls themselves
+    // A seat is taken from the ledger first, so a full program costs no insert (only a lookup to tell a duplicate apart).
+    // While users are waiting for the program it counts as full: admins cannot hand a freed seat past the waitlist.
+    public EnrollmentResult enroll(int userId, int programId, Integer allocatedById) {
+        return enroll(userId, programId, allocatedById, true);
+    }
+
+    private EnrollmentResult enroll(int userId, int programId, Integer allocatedById, boolean behindWaitlist) {
+        if (!(behindWaitlist ? takeSeat(programId) : seatLedger.tryReserve(programId))) {
+            return allocationDAO.isEnrolled(userId, programId) ? EnrollmentResult.ALREADY_ENROLLED : EnrollmentResult.PROGRAM_FULL;
+        }
+        EnrollmentResult result;
+        try {
+            result = allocationDAO.enroll(userId, programId, allocatedById);
+        } catch (RuntimeException e) {
+            seatLedger.cancel(programId, 1);
+            throw e;
+        }
+        if (result == EnrollmentResult.ENROLLED) {
+            seatLedger.confirm(programId, 1);
+            catalogCache.invalidate(programId);
+        } else {
+            seatLedger.cancel(programId, 1);
+        }
+        return result;
+    }
+
+    // Self-enrollment: like enroll, but a full program puts the user on its waitlist (WAITLISTED) instead of PROGRAM_FULL.
+    // While anyone is waiting, newcomers queue behind them rather than racing the promoter for a freed seat.
+    public EnrollmentResult enrollOrWaitlist(int userId, int programId, Integer allocatedById) {
+        if (waitlist.hasWaiting(programId)) {
+            if (allocationDAO.isEnrolled(userId, programId)) return EnrollmentResult.ALREADY_ENROLLED;
+            if (waitlist.join(userId, programId)) return EnrollmentResult.WAITLISTED;
+            // unknown user or program: let enroll tell which (such an insert cannot take the seat)
+            return enroll(userId, programId, allocatedById, false);
+        }
+        EnrollmentResult result = enroll(userId, programId, allocatedById);
+        if (result == EnrollmentResult.PROGRAM_FULL && waitlist.join(userId, programId)) {
+            return EnrollmentResult.WAITLISTED;
+        }
+        return result;
+    }
+
+    // false when the user was not waiting for the program
+    public boolean leaveWaitlist(int userId, int programId) {
+        return waitlist.leave(userId, programId);
+    }
+
+    // One group-committed batch from EnrollmentPipeline; results line up with the input lists.
+    // The pipeline serves self-enrollment, so full programs waitlist the user as enrollOrWaitlist does.
+    public List<EnrollmentResult> enrollAll(List<Integer> userIds, List<Integer> programIds) {
+        BitSet admitted = new BitSet(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            int programId = programIds.get(i);
+            if (takeSeat(programId)) admitted.set(i);
+        }
+        List<EnrollmentResult> results;
+        try {
+            results = allocationDAO.enrollAll(userIds, programIds, admitted);
+        } catch (RuntimeException e) {
+            admitted.stream().forEach(i -> seatLedger.cancel(programIds.get(i), 1));
+            throw e;
+        }
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == EnrollmentResult.ENROLLED) {
+                seatLedger.confirm(programIds.get(i), 1);
+                catalogCache.invalidate(programIds.get(i));
+            } else if (admitted.get(i)) {
+                seatLedger.cancel(programIds.get(i), 1);
+            }
+        }
+        waitlistFull(userIds, programIds, results);
+        return results;
+    }
+
+    // the batch's PROGRAM_FULL pairs join their waitlists together; the enrollments are already committed either way
+    private void waitlistFull(List<Integer> userIds, List<Integer> programIds, List<EnrollmentResult> results) {
+        List<Integer> full = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == EnrollmentResult.PROGRAM_FULL) full.add(i);
+        }
+        if (full.isEmpty()) return;
+        try {
+            waitlist.joinAll(full.stream().map(userIds::get).toList(), full.stream().map(programIds::get).toList());
+        } catch (RuntimeException e) {
+            log.warn("Could not waitlist {} enrollments of a batch: {}", full.size(), e.getMessage());
+            return;
+        }
+        full.forEach(i -> results.set(i, EnrollmentResult.WAITLISTED));
+    }
+
+    // users handled per transaction by bulkAllocate
+    public static final int BULK_CHUNK_SIZE = 1000;
+
+    // Allocates a program to an explicit list of users or to every user matching the cohort filter.
+    // Works in chunks of BULK_CHUNK_SIZE, each committed on its own, so a large cohort never holds one long transaction.
+    // Returns null when the program does not exist.
+    public BulkAllocationResult bulkAllocate(BulkAllocationRequest request) {
+        int programId = request.getProgramId();
+        if (!allocationDAO.programExists(programId)) {
+            return null;
+        }
+        BulkAllocationResult result = new BulkAllocationResult(programId);
+        if (request.getUserIds() != null) {
+            if (request.getUserIds().stream().anyMatch(Objects::isNull)) {
+                throw new IllegalArgumentException("userIds must not contain null");
+            }
+            List<Integer> userIds = List.copyOf(new LinkedHashSet<>(request.getUserIds()));
+            for (int from = 0; from < userIds.size(); from += BULK_CHUNK_SIZE) {
+                List<Integer> chunk = userIds.subList(from, Math.min(from + BULK_CHUNK_SIZE, userIds.size()));
+                result.merge(bulkEnrollChunk(programId, chunk, request.getAllocatedById()));
+            }
+            invalidateIfEnrolled(result);
+            return result;
+        }
+        User.Role role = null;
+        if (request.getRole() != null) {
+            try {
+                role = User.Role.valueOf(request.getRole().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Role must be USER or ADMIN");
+            }
+        }
+        String emailDomain = request.getEmailDomain();
+        if (emailDomain != null && emailDomain.isBlank()) emailDomain = null;
+        if (role == null && emailDomain == null) {
+            throw new IllegalArgumentException("userIds or a cohort filter (role, emailDomain) is required");
+        }
+        int afterUserId = 0;
+        List<Integer> chunk;
+        do {
+            chunk = allocationDAO.getCohortUserIds(role, emailDomain, afterUserId, BULK_CHUNK_SIZE);
+            if (chunk.isEmpty()) break;
+            result.merge(bulkEnrollChunk(programId, chunk, request.getAllocatedById()));
+            afterUserId = chunk.get(chunk.size() - 1);
+        } while (chunk.size() == BULK_CHUNK_SIZE);
+        invalidateIfEnrolled(result);
+        return result;
+    }
+
+    // one chunk in its own transaction; the DAO asks for seats once it knows how many users are really new
+    private BulkAllocationResult bulkEnrollChunk(int programId, List<Integer> chunk, Integer allocatedById) {
+        int[] reserved = {0};
+        BulkAllocationResult result;
+        try {
+            result = allocationDAO.bulkEnroll(programId, chunk, allocatedById,
+                                              wanted -> reserved[0] = takeSeats(programId, wanted));
+        } catch (RuntimeException e) {
+            seatLedger.cancel(programId, reserved[0]);
+            throw e;
+        }
+        seatLedger.confirm(programId, result.getEnrolled().size());
+        seatLedger.cancel(programId, reserved[0] - result.getEnrolled().size());
+        return result;
+    }
+
+    private void invalidateIfEnrolled(BulkAllocationResult result) {
+        if (!result.getEnrolled().isEmpty()) catalogCache.invalidate(result.getProgramId());
+    }
+
+    // New allocations, and edits that move an allocation to another program, need a free seat in the (new) program
+    // (IllegalStateException otherwise); a move gives the old program's seat back
     public void saveAllocation(UserTrainingAllocationModel allocationModel) {
-        allocationDAO.save(allocationModel);
+        int programId = allocationModel.getProgramId();
+        Integer previousProgramId = null;
+        if (allocationModel.getAllocationId() != 0) {
+            UserTrainingAllocationModel current = allocationDAO.getAllocationById(allocationModel.getAllocationId());
+            if (current == null || current.getProgramId() == programId) {
+                allocationDAO.save(allocationModel);
+                catalogCache.invalidateAll();
+                return;
+            }
+            previousProgramId = current.getProgramId();
+        }
+        reserveOrThrow(programId);
+        if (previousProgramId != null) seatLedger.markRelease(previousProgramId);
+        try {
+            allocationDAO.save(allocationModel);
+        } catch (RuntimeException e) {
+            seatLedger.cancel(programId, 1);
+            if (previousProgramId != null) seatLedger.keep(previousProgramId);
+            throw e;
+        }
+        seatLedger.confirm(programId, 1);
+        if (previousProgramId != null) {
+            seatLedger.release(previousProgramId);
+            waitlist.seatFreed(previousProgramId);
+        }
+        catalogCache.invalidateAll();
+    }
+
+    private void reserveOrThrow(int programId) {
+        if (!takeSeat(programId)) {
+            throw new IllegalStateException("Training program " + programId + " is full");
+        }
+    }
+
+    // Every path that takes seats asks here: while anyone is waiting for the program, its free seats belong to the
+    // waitlist promoter and the program counts as full
+    private int takeSeats(int programId, int wanted) {
+        return waitlist.hasWaiting(programId) ? 0 : seatLedger.tryReserve(programId, wanted);
+    }
+
+    private boolean takeSeat(int programId) {
+        return takeSeats(programId, 1) == 1;
     }
 
     public UserTrainingAllocationModel getAllocationById(int id) {
         return allocationDAO.getAllocationById(id);
     }
-    public List<project.OnlineTrainingProgram.Entity.ProgramAllocation> getAllocationsByUserId(int userId) {
-        return allocationDAO.getAllocationsByUserId(userId);
+    public List<MyTrainingRow> getMyTrainings(int userId) {
+        return allocationDAO.getMyTrainings(userId);
     }
     
     public List<UserTrainingAllocationModel> getAllAllocations() {
         return allocationDAO.getAllAllocations();
     }
 
+    public PageModel<UserTrainingAllocationModel> getAllocationsPage(String cursor, int limit) {
+        int pageSize = PageModel.clampPageSize(limit);
+        return PageModel.of(allocationDAO.getAllocationsAfter(PageModel.decodeCursor(cursor), pageSize + 1),
+                pageSize, UserTrainingAllocationModel::getAllocationId);
+    }
+
+    // Writes the allocation export as CSV (with header) or NDJSON while the database cursor is still being read.
+    // The first row is flushed right away and then every EXPORT_FLUSH_ROWS rows, so memory stays flat whatever the row count.
+    public void exportAllocations(OutputStream out, boolean ndjson, LocalDate from, LocalDate to, Integer programId,
+                                  boolean includeArchived) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (!ndjson) {
+            writer.write(AllocationExportRow.CSV_HEADER);
+            if (includeArchived) writer.write(AllocationExportRow.CSV_ARCHIVED_COLUMN);
+            writer.write('\n');
+            writer.flush();
+        }
+        var json = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long[] written = {0};
+        try {
+            allocationDAO.exportAllocations(from, to, programId, includeArchived, row -> {
+                try {
+                    if (ndjson) {
+                        writer.write(json.writeValueAsString(row));
+                    } else {
+                        writeCsvRow(writer, row);
+                        if (includeArchived) writer.write(row.isArchived() ? ",true" : ",false");
+                    }
+                    writer.write('\n');
+                    if (++written[0] % EXPORT_FLUSH_ROWS == 1) writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // client went away; the cursor and its transaction are already closed by the DAO
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvRow(BufferedWriter writer, AllocationExportRow row) throws IOException {
+        writer.write(row.getAllocationId() + "," + row.getUserId() + "," + csv(row.getUserName()) + "," + csv(row.getUserEmail()) + ","
+                     + row.getProgramId() + "," + csv(row.getProgramName()) + ","
+                     + (row.getAllocatedById() != null ? row.getAllocatedById() : "") + ","
+                     + (row.getAllocationDate() != null ? row.getAllocationDate() : ""));
+    }
+
+    // quotes a CSV field when it contains a separator, quote or line break
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // the seat is marked as being released before the DELETE commits, so a reconcile in between leaves it alone
     public void deleteAllocation(int id) {
-        allocationDAO.delete(id);
+        UserTrainingAllocationModel allocation = allocationDAO.getAllocationById(id);
+        if (allocation != null && release(allocation.getProgramId(), () -> allocationDAO.deleteFromProgram(id, allocation.getProgramId()))) {
+            waitlist.seatFreed(allocation.getProgramId());
+        }
+        catalogCache.invalidateAll();
     }
     public boolean deleteAllocation(int userId, int trainingId) {
-        project.OnlineTrainingProgram.Entity.ProgramAllocation allocation = allocationDAO.getByUserIdAndTrainingId(userId, trainingId);
-        if (allocation != null) {
-            allocationDAO.delete(allocation.getAllocationId());  // delete by allocation id
+        // single DELETE instead of loading the allocation (and its eager associations) first
+        if (release(trainingId, () -> allocationDAO.deleteByUserAndProgram(userId, trainingId))) {
+            // promoted in the background, batched with any other cancellations arriving right now
+            waitlist.seatFreed(trainingId);
+            catalogCache.invalidate(trainingId);
             return true;
         }
         return false;
     }
 
+    // runs one delete of an allocation of the program between markRelease and release/keep
+    private boolean release(int programId, BooleanSupplier delete) {
+        seatLedger.markRelease(programId);
+        boolean deleted = false;
+        try {
+            deleted = delete.getAsBoolean();
+        } finally {
+            if (deleted) {
+                seatLedger.release(programId);
+            } else {
+                seatLedger.keep(programId);
+            }
+        }
+        return deleted;
+    }
+
 }
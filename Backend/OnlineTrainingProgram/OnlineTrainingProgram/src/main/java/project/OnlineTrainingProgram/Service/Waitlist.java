@@ -0,0 +1,282 @@
+package project.OnlineTrainingProgram.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import project.OnlineTrainingProgram.Dao.WaitlistDAO;
+
+/**
+ * First come, first served waitlists for full programs.
+ * The program_waitlist table is the source of truth (join order is its identity column); each program's waiting user
+ * ids are mirrored in a ConcurrentLinkedQueue, so checking for waiters and picking the next users take neither a
+ * lock nor a query. Joins of the same program take turns around their insert, so the queue keeps the table's order.
+ * A freed seat is not handed out by the request that freed it: seatFreed only queues the program id and a single
+ * "waitlist-promoter" thread does the work. It waits app.waitlist.batch-window for more cancellations to pile up,
+ * reserves every free seat it can fill from SeatLedger and promotes up to app.waitlist.max-batch users per
+ * transaction (WaitlistDAO.promote), so a mass cancellation costs a few transactions rather than one per cancel.
+ * Every app.waitlist.sweep-interval all programs with waiters are checked as well, which picks up seats freed by
+ * writes that bypass seatFreed (deleting a user, raising a capacity, seat reconciliation).
+ * Like SeatLedger the queues are kept per instance.
+ */
+@Component
+public class Waitlist implements SmartInitializingSingleton, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(Waitlist.class);
+
+    // 3 bind parameters per promoted row, as in EnrollmentPipeline
+    private static final int MAX_BATCH_LIMIT = 5000;
+
+    @Autowired
+    private WaitlistDAO waitlistDAO;
+
+    @Autowired
+    private SeatLedger seatLedger;
+
+    // promotions change the catalog's purchasedByCount
+    @Autowired
+    private TrainingCatalogCache catalogCache;
+
+    private final int maxBatch;
+    private final Duration batchWindow;
+    private final Duration sweepInterval;
+    private final DistributionSummary batchSizes;
+    private final Map<Integer, Queue<Integer>> queues = new ConcurrentHashMap<>();
+    // held while a program's waitlist rows are inserted and mirrored into its queue, or the queue is rebuilt
+    private final Map<Integer, ReentrantLock> joinLocks = new ConcurrentHashMap<>();
+    // programs that may have a free seat for their first waiter
+    private final BlockingQueue<Integer> freed = new LinkedBlockingQueue<>();
+    private volatile boolean running;
+    private Thread promoter;
+
+    public Waitlist(@Value("${app.waitlist.max-batch:500}") int maxBatch,
+                    @Value("${app.waitlist.batch-window:100ms}") Duration batchWindow,
+                    @Value("${app.waitlist.sweep-interval:1m}") Duration sweepInterval,
+                    ObjectProvider<MeterRegistry> meterRegistry) {
+        this.maxBatch = Math.max(1, Math.min(maxBatch, MAX_BATCH_LIMIT));
+        this.batchWindow = batchWindow;
+        this.sweepInterval = sweepInterval;
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        batchSizes = registry == null ? null : DistributionSummary.builder("app.waitlist.promotion.batch.size")
+                .description("Waitlisted users promoted per transaction").register(registry);
+    }
+
+    public boolean hasWaiting(int programId) {
+        Queue<Integer> queue = queues.get(programId);
+        return queue != null && !queue.isEmpty();
+    }
+
+    // Puts the user on the program's waitlist; true when they are on it now (newly or already), false when the user
+    // or program does not exist
+    public boolean join(int userId, int programId) {
+        boolean joined;
+        List<ReentrantLock> held = lock(List.of(programId));
+        try {
+            joined = waitlistDAO.join(userId, programId);
+            if (joined) queue(programId).offer(userId);
+        } finally {
+            held.forEach(ReentrantLock::unlock);
+        }
+        if (!joined) return waitlistDAO.isWaiting(userId, programId);
+        nudge(programId);
+        return true;
+    }
+
+    // Joins for a whole pipeline batch; every pair ends up waiting (see WaitlistDAO.joinAll)
+    public void joinAll(List<Integer> userIds, List<Integer> programIds) {
+        if (userIds.isEmpty()) return;
+        List<ReentrantLock> held = lock(programIds);
+        try {
+            BitSet joined = waitlistDAO.joinAll(userIds, programIds);
+            joined.stream().forEach(i -> queue(programIds.get(i)).offer(userIds.get(i)));
+        } finally {
+            held.forEach(ReentrantLock::unlock);
+        }
+        new LinkedHashSet<>(programIds).forEach(this::nudge);
+    }
+
+    public boolean leave(int userId, int programId) {
+        if (!waitlistDAO.leave(userId, programId)) return false;
+        Queue<Integer> queue = queues.get(programId);
+        if (queue != null) queue.remove(userId);
+        return true;
+    }
+
+    // A seat of the program was freed; the promoter hands it to the first waiter shortly
+    public void seatFreed(int programId) {
+        if (hasWaiting(programId)) freed.offer(programId);
+    }
+
+    // Seats may have been freed anywhere (a user with several allocations was deleted, for example)
+    public void promoteAll() {
+        queues.forEach((programId, queue) -> {
+            if (!queue.isEmpty()) freed.offer(programId);
+        });
+    }
+
+    // the program was deleted, and its entries with it
+    public void forget(int programId) {
+        queues.remove(programId);
+        joinLocks.remove(programId);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        waitlistDAO.getQueues(null).forEach((programId, userIds) -> queues.put(programId, new ConcurrentLinkedQueue<>(userIds)));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        promoter = new Thread(this::run, "waitlist-promoter");
+        promoter.setDaemon(true);
+        promoter.start();
+        // seats freed while the application was down
+        promoteAll();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (promoter != null) promoter.interrupt();
+        promoter = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private Queue<Integer> queue(int programId) {
+        return queues.computeIfAbsent(programId, id -> new ConcurrentLinkedQueue<>());
+    }
+
+    // takes the programs' join locks in id order, so two callers locking several programs cannot deadlock
+    private List<ReentrantLock> lock(Collection<Integer> programIds) {
+        List<ReentrantLock> held = new ArrayList<>();
+        for (int programId : new TreeSet<>(programIds)) {
+            ReentrantLock lock = joinLocks.computeIfAbsent(programId, id -> new ReentrantLock());
+            lock.lock();
+            held.add(lock);
+        }
+        return held;
+    }
+
+    // a user just joined: promote right away if a seat is free (it was freed after the caller found the program full)
+    private void nudge(int programId) {
+        Integer available = seatLedger.available(programId);
+        if (available == null || available > 0) freed.offer(programId);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Set<Integer> programs = new LinkedHashSet<>();
+                Integer first = freed.poll(sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    queues.forEach((programId, queue) -> {
+                        if (!queue.isEmpty()) programs.add(programId);
+                    });
+                } else {
+                    // let the rest of a burst of cancellations arrive, then promote for all of them together
+                    Thread.sleep(batchWindow.toMillis());
+                    programs.add(first);
+                    List<Integer> more = new ArrayList<>();
+                    freed.drainTo(more);
+                    programs.addAll(more);
+                }
+                promote(programs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                log.warn("Waitlist promotion failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Fills batches from the programs' free seats and waiters until none of them can promote anyone else
+    private void promote(Collection<Integer> programs) {
+        Deque<Integer> todo = new ArrayDeque<>(programs);
+        while (!todo.isEmpty()) {
+            List<Integer> userIds = new ArrayList<>();
+            List<Integer> programIds = new ArrayList<>();
+            Map<Integer, Integer> reserved = new LinkedHashMap<>();
+            while (!todo.isEmpty() && userIds.size() < maxBatch) {
+                int programId = todo.poll();
+                Queue<Integer> queue = queues.get(programId);
+                if (queue == null || queue.isEmpty()) continue;
+                int seats = seatLedger.tryReserve(programId, maxBatch - userIds.size());
+                int picked = 0;
+                Integer userId;
+                while (picked < seats && (userId = queue.poll()) != null) {
+                    userIds.add(userId);
+                    programIds.add(programId);
+                    picked++;
+                }
+                seatLedger.cancel(programId, seats - picked);
+                if (picked > 0) reserved.merge(programId, picked, Integer::sum);
+                // the batch filled up first: this program goes first in the next one
+                if (userIds.size() == maxBatch && !queue.isEmpty()) todo.addFirst(programId);
+            }
+            if (userIds.isEmpty()) return;
+
+            BitSet promoted;
+            try {
+                promoted = waitlistDAO.promote(userIds, programIds);
+            } catch (RuntimeException e) {
+                reserved.forEach(seatLedger::cancel);
+                // the picked users are still in the table: rebuild these queues from it, the next sweep retries
+                List<ReentrantLock> held = lock(reserved.keySet());
+                try {
+                    Map<Integer, List<Integer>> fresh = waitlistDAO.getQueues(reserved.keySet());
+                    reserved.keySet().forEach(programId -> queues.put(programId,
+                            new ConcurrentLinkedQueue<>(fresh.getOrDefault(programId, List.of()))));
+                } finally {
+                    held.forEach(ReentrantLock::unlock);
+                }
+                throw e;
+            }
+            if (batchSizes != null) batchSizes.record(promoted.cardinality());
+            for (int i = 0; i < userIds.size(); i++) {
+                int programId = programIds.get(i);
+                if (promoted.get(i)) {
+                    seatLedger.confirm(programId, 1);
+                } else {
+                    // left the waitlist meanwhile: the seat goes to the next waiter
+                    seatLedger.cancel(programId, 1);
+                    if (!todo.contains(programId)) todo.add(programId);
+                }
+            }
+            reserved.keySet().forEach(catalogCache::invalidate);
+            log.debug("Promoted {} waitlisted users into {} programs", promoted.cardinality(), reserved.size());
+        }
+    }
+}
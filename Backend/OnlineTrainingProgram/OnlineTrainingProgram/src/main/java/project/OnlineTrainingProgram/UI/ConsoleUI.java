@@ -1,6 +1,5 @@
 package project.OnlineTrainingProgram.UI;
 
-import java.time.LocalDate;
 import java.util.Comparator;
 import java.util.InputMismatchException;
 import java.util.List;
@@ -9,8 +8,11 @@ import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+import project.OnlineTrainingProgram.Model.PageModel;
 import project.OnlineTrainingProgram.Model.TrainingModel;
 import project.OnlineTrainingProgram.Model.UserModel;
 import project.OnlineTrainingProgram.Model.UserTrainingAllocationModel;
@@ -20,6 +22,8 @@ import project.OnlineTrainingProgram.Service.UserTrainingAllocationService;
 
 
 @Component
+// the console blocks on System.in, so it can be switched off for tests and headless runs
+@ConditionalOnProperty(name = "app.console.enabled", havingValue = "true", matchIfMissing = true)
 public class ConsoleUI implements CommandLineRunner {
 
     @Autowired
@@ -373,32 +377,20 @@ public class ConsoleUI implements CommandLineRunner {
    
     private void viewMyTraining(UserModel user) {
         try {
-            var allocations = allocationService.getAllAllocations()
-                .stream()
-                .filter(a -> a.getUserId() == user.getUserId())
-                .toList();
+            // one projection query, already sorted by Program ID
+            var rows = allocationService.getMyTrainings(user.getUserId());
 
-            if (allocations.isEmpty()) {
+            if (rows.isEmpty()) {
                 System.out.println("No trainings have been allocated to you yet.");
                 return;
             }
 
-            record Row(int programId, String programName, String allocatedOn) {}
-
-            var rows = allocations.stream()
-                .map(a -> {
-                    var tm = trainingService.getTrainingById(a.getProgramId());
-                    String name = (tm != null && tm.getProgramName() != null) ? tm.getProgramName() : "Unknown";
-                    return new Row(a.getProgramId(), name, String.valueOf(a.getAllocationDate()));
-                })
-                .sorted(Comparator.comparingInt(Row::programId)) // sort by Program ID
-                .toList();
-
             System.out.println("\n--- My Trainings ---");
             System.out.printf("%-12s %-40s %-8s%n", "Program ID", "Program Name", "Allocated On");
             System.out.println("--------------------------------------------------------------------");
             rows.forEach(r ->
-                System.out.printf("%-12d %-40s %-12s%n", r.programId(), r.programName(), r.allocatedOn())
+                System.out.printf("%-12d %-40s %-12s%n", r.getProgramId(),
+                        r.getProgramName() != null ? r.getProgramName() : "Unknown", r.getAllocationDate())
             );
 
         } catch (Exception e) {
@@ -502,13 +494,19 @@ public class ConsoleUI implements CommandLineRunner {
                 return;
             }
             
-            UserTrainingAllocationModel allocation = new UserTrainingAllocationModel();
-            allocation.setUserId(user.getUserId());
-            allocation.setProgramId(programId);
-            allocation.setAllocatedById(user.getUserId());
-            allocation.setAllocationDate(LocalDate.now());
-
-            allocationService.saveAllocation(allocation);
+            EnrollmentResult result = allocationService.enrollOrWaitlist(user.getUserId(), programId, user.getUserId());
+            if (result == EnrollmentResult.ALREADY_ENROLLED) {
+                System.out.println("You are already enrolled in training with ID: " + programId);
+                return;
+            }
+            if (result == EnrollmentResult.WAITLISTED) {
+                System.out.println("Training with ID " + programId + " is full. You have been added to its waitlist.");
+                return;
+            }
+            if (result == EnrollmentResult.PROGRAM_FULL) {
+                System.out.println("Training with ID " + programId + " is full.");
+                return;
+            }
             System.out.println("Successfully enrolled in training with ID: " + programId);
 
         } catch (InputMismatchException e) {
@@ -563,11 +561,27 @@ public class ConsoleUI implements CommandLineRunner {
             	}
             }while(!status.equals("ACTIVE") && !status.equals("COMPLETED") && !status.equals("CANCELLED"));
 
+            Integer capacity = null;
+            do {
+                System.out.print("Enter Capacity (leave blank for unlimited): ");
+                String capacityInput = scanner.nextLine().trim();
+                if (capacityInput.isEmpty()) break;
+                try {
+                    capacity = Integer.parseInt(capacityInput);
+                    if (capacity > 0) break;
+                    System.out.println("Capacity must be a positive number.");
+                } catch (NumberFormatException e) {
+                    System.out.println("Invalid capacity. Please enter a whole number.");
+                }
+                capacity = null;
+            } while (true);
+
             TrainingModel m = new TrainingModel();
             m.setProgramName(programName);
             m.setDescription(description);
             m.setPrice(price);
             m.setStatus(status);
+            m.setCapacity(capacity);
             trainingService.saveTraining(m);
 
             System.out.println("Training Program created successfully.");
@@ -594,10 +608,12 @@ public class ConsoleUI implements CommandLineRunner {
         	System.out.println("Status must be any of these 3. ACTIVE/COMPLETED/CANCELLED");
         	}
         }while(!status.equals("ACTIVE") && !status.equals("COMPLETED") && !status.equals("CANCELLED"));
-        m.setStatus(status);
-        
-        trainingService.saveTraining(m);
-        System.out.println("Training Program status updated.");
+        // only applies if the status is still the one shown above
+        switch (trainingService.updateTrainingStatus(id, status, m.getStatus())) {
+            case UPDATED -> System.out.println("Training Program status updated.");
+            case CONFLICT -> System.out.println("Status was changed by someone else in the meantime. Please try again.");
+            default -> System.out.println("Training Not Found.");
+        }
     }
 
     private void viewAllUsers() {
@@ -692,13 +708,15 @@ public class ConsoleUI implements CommandLineRunner {
                 System.out.println("This training program has been CANCELLED. Cannot allocate.");
                 return;
             }
-            UserTrainingAllocationModel a = new UserTrainingAllocationModel();
-            a.setUserId(userId);
-            a.setProgramId(programId);
-            a.setAllocatedById(currentAdmin.getUserId());
-            a.setAllocationDate(LocalDate.now());
-
-            allocationService.saveAllocation(a);
+            EnrollmentResult result = allocationService.enroll(userId, programId, currentAdmin.getUserId());
+            if (result == EnrollmentResult.ALREADY_ENROLLED) {
+                System.out.println("This program is already allocated to the user.");
+                return;
+            }
+            if (result == EnrollmentResult.PROGRAM_FULL) {
+                System.out.println("This training program is full.");
+                return;
+            }
             System.out.println("Program allocated to user successfully.");
         } catch (Exception e) {
             System.out.println("Error: Failed to allocate program to user. " + e.getMessage());
@@ -746,7 +764,8 @@ public class ConsoleUI implements CommandLineRunner {
             programId = scanner.nextInt();
             scanner.nextLine(); // Consume the newline character
 
-            boolean removed = trainingService.removeTrainingProgram(programId);
+            boolean removed = trainingService.removeTrainingProgram(programId,
+                    count -> System.out.println("  ... " + count + " allocations removed"));
 
             if (removed) {
                 System.out.println("Training Program with ID " + programId + " removed successfully.");
@@ -763,19 +782,10 @@ public class ConsoleUI implements CommandLineRunner {
     }
     private void viewUsersByProgramCount() {
         try {
-            List<UserModel> allUsers = userService.getAllUsers();
-
-            if (allUsers == null || allUsers.isEmpty()) {
-                System.out.println("No users found.");
-                return;
-            }
+            // the report query already filters, counts and orders by user id; we just walk its pages
+            PageModel<UserModel> page = userService.getUnderAllocatedUsers(3, "USER", false, null, PageModel.DEFAULT_PAGE_SIZE);
 
-            List<UserModel> usersWithLessThanThreePrograms = allUsers.stream()
-                    .filter(u -> "USER".equalsIgnoreCase(u.getRole()) && u.getProgramCount() < 3)
-                    .sorted(Comparator.comparingInt(UserModel::getUserId))
-                    .collect(Collectors.toList());
-
-            if (usersWithLessThanThreePrograms.isEmpty()) {
+            if (page.getItems().isEmpty()) {
                 System.out.println("All users have 3 or more programs allocated.");
                 return;
             }
@@ -785,13 +795,17 @@ public class ConsoleUI implements CommandLineRunner {
             System.out.printf(formatString, "ID", "Name", "Program Count");
             System.out.println("----------------------------------------------");
 
-            for (UserModel u : usersWithLessThanThreePrograms) {
-                System.out.printf(
-                    formatString,
-                    u.getUserId(),
-                    u.getName(),
-                    u.getProgramCount()
-                );
+            while (true) {
+                for (UserModel u : page.getItems()) {
+                    System.out.printf(
+                        formatString,
+                        u.getUserId(),
+                        u.getName(),
+                        u.getProgramCount()
+                    );
+                }
+                if (page.getNextCursor() == null) break;
+                page = userService.getUnderAllocatedUsers(3, "USER", false, page.getNextCursor(), PageModel.DEFAULT_PAGE_SIZE);
             }
             System.out.println("----------------------------------------------");
         } catch (Exception e) {
@@ -1,9 +1,11 @@
 package project.OnlineTrainingProgram.UI;
 
-import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import project.OnlineTrainingProgram.Controller.ListResponder;
 import project.OnlineTrainingProgram.Model.TrainingModel;
 import project.OnlineTrainingProgram.Service.TrainingService;
 
@@ -14,6 +16,9 @@ public class TrainingAPI {
 	
 	@Autowired
 	private TrainingService trainingService;
+
+	@Autowired
+	private ListResponder listResponder;
 	
 	@PostMapping
 	public String saveTraining(@RequestBody TrainingModel trainingModel) {
@@ -26,10 +31,12 @@ public class TrainingAPI {
 		return trainingService.getTrainingById(id);
 	}
 	
+	// streams the catalog as a JSON array; pass cursor/limit for a single keyset page instead
 	@GetMapping
-	public List<TrainingModel> getAllTrainings(){
-		return trainingService.getAllTrainings();
-		
+	public ResponseEntity<StreamingResponseBody> getAllTrainings(@RequestParam(required = false) String cursor,
+	                                                             @RequestParam(required = false) Integer limit,
+	                                                             @RequestParam(required = false) String format){
+		return listResponder.respond(cursor, limit, format, trainingService::getTrainingsPage);
 	}
 	
 	@DeleteMapping("/{id}")
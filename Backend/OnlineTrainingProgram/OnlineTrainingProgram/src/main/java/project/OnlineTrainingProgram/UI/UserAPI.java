@@ -1,12 +1,13 @@
 package project.OnlineTrainingProgram.UI;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import project.OnlineTrainingProgram.Controller.ListResponder;
 import project.OnlineTrainingProgram.Model.UserModel;
 import project.OnlineTrainingProgram.Service.UserService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/users")
 @CrossOrigin(origins = "http://localhost:5173")
@@ -15,6 +16,9 @@ public class UserAPI {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ListResponder listResponder;
+
     @PostMapping
     public String saveUser(@RequestBody UserModel user) {
         userService.saveUser(user);
@@ -28,9 +32,12 @@ public class UserAPI {
     }
 
   
+    // streams every user as a JSON array; pass cursor/limit for a single keyset page instead
     @GetMapping
-    public List<UserModel> getAllUsers() {
-        return userService.getAllUsers();
+    public ResponseEntity<StreamingResponseBody> getAllUsers(@RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer limit,
+                                                             @RequestParam(required = false) String format) {
+        return listResponder.respond(cursor, limit, format, userService::getUsersPage);
     }
 
    
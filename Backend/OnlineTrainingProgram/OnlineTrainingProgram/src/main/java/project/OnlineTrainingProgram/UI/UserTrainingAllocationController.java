@@ -1,13 +1,14 @@
 package project.OnlineTrainingProgram.UI;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import project.OnlineTrainingProgram.Controller.ListResponder;
 import project.OnlineTrainingProgram.Model.UserTrainingAllocationModel;
 import project.OnlineTrainingProgram.Service.UserTrainingAllocationService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/allocations")
 @CrossOrigin(origins = "http://localhost:5173")
@@ -16,6 +17,9 @@ public class UserTrainingAllocationController {
     @Autowired
     private UserTrainingAllocationService allocationService;
 
+    @Autowired
+    private ListResponder listResponder;
+
     @PostMapping
     public String save(@RequestBody UserTrainingAllocationModel model) {
         allocationService.saveAllocation(model);
@@ -27,9 +31,12 @@ public class UserTrainingAllocationController {
         return allocationService.getAllocationById(id);
     }
 
+    // streams every allocation as a JSON array; pass cursor/limit for a single keyset page instead
     @GetMapping
-    public List<UserTrainingAllocationModel> getAll() {
-        return allocationService.getAllAllocations();
+    public ResponseEntity<StreamingResponseBody> getAll(@RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        @RequestParam(required = false) String format) {
+        return listResponder.respond(cursor, limit, format, allocationService::getAllocationsPage);
     }
 
     @DeleteMapping("/{id}")
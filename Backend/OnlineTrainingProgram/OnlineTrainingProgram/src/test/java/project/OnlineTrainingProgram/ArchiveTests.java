@@ -0,0 +1,199 @@
+package project.OnlineTrainingProgram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static project.OnlineTrainingProgram.TestSupport.allocations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.jayway.jsonpath.JsonPath;
+
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+import project.OnlineTrainingProgram.Model.PageModel;
+import project.OnlineTrainingProgram.Service.AllocationArchiver;
+import project.OnlineTrainingProgram.Service.TrainingService;
+import project.OnlineTrainingProgram.Service.UserTrainingAllocationService;
+
+@SpringBootTest(properties = {"app.archive.chunk-size=100", "app.archive.retention=30d",
+                              "spring.datasource.url=jdbc:h2:mem:archive;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1"})
+@AutoConfigureMockMvc
+class ArchiveTests {
+
+	private static final int USERS = 250;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private AllocationArchiver archiver;
+
+	@Autowired
+	private TrainingService trainingService;
+
+	@Autowired
+	private UserTrainingAllocationService allocationService;
+
+	@Autowired
+	private TransactionTemplate transactions;
+
+	private List<Integer> userIds;
+	private int finishedId;
+	private int runningId;
+
+	@BeforeEach
+	void seed() {
+		userIds = TestSupport.users(jdbc, USERS);
+		finishedId = TestSupport.program(jdbc, "Finished");
+		runningId = TestSupport.program(jdbc, "Running");
+		TestSupport.allocate(jdbc, userIds, finishedId, null);
+		// one current enrollment and one past the 30 day retention window in the running program
+		jdbc.update("INSERT INTO user_program_allocation (user_id, program_id, allocation_date) VALUES (?, ?, CURRENT_DATE)", userIds.get(0), runningId);
+		jdbc.update("INSERT INTO user_program_allocation (user_id, program_id, allocation_date) VALUES (?, ?, DATEADD('DAY', -60, CURRENT_DATE))",
+		            userIds.get(1), runningId);
+	}
+
+	@Test
+	void finishedProgramsAndOldAllocationsMoveToTheArchive() throws Exception {
+		mvc.perform(put("/api/admin/trainings/" + finishedId + "/status").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"status\":\"COMPLETED\"}")).andExpect(status().isOk());
+
+		assertEquals(USERS + 1, archiver.archive());
+		assertEquals(0, allocations(jdbc, finishedId));
+		assertEquals(USERS, archived(finishedId));
+		assertEquals(1, allocations(jdbc, runningId));
+		assertEquals(1, archived(runningId));
+		// the expired enrollment no longer blocks a new one
+		assertEquals(EnrollmentResult.ENROLLED, allocationService.enroll(userIds.get(1), runningId, null));
+		assertEquals(0, archiver.archive());
+	}
+
+	@Test
+	void exportIncludesArchivedRowsOnRequest() throws Exception {
+		trainingService.updateTrainingStatus(finishedId, "CANCELLED", null);
+		archiver.archive();
+
+		// header only: the program's allocations are all archived
+		assertEquals(1, export("csv", finishedId, false).size());
+
+		List<String> lines = export("csv", finishedId, true);
+		assertTrue(lines.get(0).endsWith(",archived"));
+		assertEquals(USERS + 1, lines.size());
+		assertTrue(lines.stream().skip(1).allMatch(line -> line.endsWith(",true")));
+
+		// hot rows first, then the archived ones
+		List<String> rows = export("ndjson", runningId, true);
+		assertEquals(2, rows.size());
+		assertTrue(!rows.get(0).contains("archived") && rows.get(1).contains("\"archived\":true"), rows.toString());
+	}
+
+	@Test
+	void userReportsCountArchivedAllocationsOnRequest() throws Exception {
+		trainingService.updateTrainingStatus(finishedId, "COMPLETED", null);
+		archiver.archive();
+		// userIds.get(2) only had the finished program's allocation, now archived
+		int userId = userIds.get(2);
+		String cursor = PageModel.encodeCursor(userId - 1);
+
+		mvc.perform(get("/api/admin/users/allocations/under-allocated").param("threshold", "1").param("cursor", cursor).param("limit", "1"))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.items[0].userId").value(userId));
+		mvc.perform(get("/api/admin/users/allocations/under-allocated").param("threshold", "1").param("cursor", cursor).param("limit", "1")
+				.param("includeArchived", "true"))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.items[?(@.userId == " + userId + ")]").isEmpty());
+
+		assertEquals(0, programCount(userId, cursor, false));
+		assertEquals(1, programCount(userId, cursor, true));
+	}
+
+	@Test
+	void retentionsShorterThanADayAreRejected() {
+		AllocationArchiver shortRetention = new AllocationArchiver();
+		ReflectionTestUtils.setField(shortRetention, "retention", Duration.ofHours(12));
+		assertThrows(IllegalStateException.class, shortRetention::start);
+	}
+
+	@Test
+	void rowsLockedByAnotherTransactionAreLeftForTheNextRun() throws Exception {
+		trainingService.updateTrainingStatus(finishedId, "COMPLETED", null);
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		// stands in for a cancellation that is deleting the row right now
+		Thread canceller = new Thread(() -> transactions.executeWithoutResult(tx -> {
+			jdbc.queryForList("SELECT allocation_id FROM user_program_allocation WHERE user_id = ? AND program_id = ? FOR UPDATE",
+			                  userIds.get(0), finishedId);
+			locked.countDown();
+			try {
+				done.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		canceller.start();
+		assertTrue(locked.await(10, TimeUnit.SECONDS));
+		try {
+			archiver.archive();
+			assertEquals(1, allocations(jdbc, finishedId));
+			assertEquals(USERS - 1, archived(finishedId));
+		} finally {
+			done.countDown();
+			canceller.join();
+		}
+		archiver.archive();
+		assertEquals(0, allocations(jdbc, finishedId));
+		assertEquals(USERS, archived(finishedId));
+	}
+
+	@Test
+	void deletingAProgramAlsoDropsItsArchive() {
+		trainingService.updateTrainingStatus(finishedId, "COMPLETED", null);
+		archiver.archive();
+		trainingService.deleteTraining(finishedId);
+		assertEquals(0, archived(finishedId));
+	}
+
+	// the export is a streaming body: wait for the async part before reading it
+	private List<String> export(String format, int programId, boolean includeArchived) throws Exception {
+		MvcResult started = mvc.perform(get("/api/admin/allocations/export").param("format", format)
+				.param("programId", String.valueOf(programId)).param("includeArchived", String.valueOf(includeArchived)))
+				.andExpect(request().asyncStarted()).andReturn();
+		return mvc.perform(asyncDispatch(started)).andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString().lines().toList();
+	}
+
+	// the user's programCount in the admin user list, which streams: wait for the async part before reading it
+	private int programCount(int userId, String cursor, boolean includeArchived) throws Exception {
+		MvcResult started = mvc.perform(get("/api/admin/users").param("cursor", cursor).param("limit", "1")
+				.param("includeArchived", String.valueOf(includeArchived)))
+				.andExpect(request().asyncStarted()).andReturn();
+		mvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andExpect(jsonPath("$.items[0].userId").value(userId));
+		return JsonPath.read(started.getResponse().getContentAsString(), "$.items[0].programCount");
+	}
+
+	private int archived(int programId) {
+		return jdbc.queryForObject("SELECT COUNT(*) FROM user_program_allocation_archive WHERE program_id = ?", Integer.class, programId);
+	}
+}
@@ -0,0 +1,58 @@
+package project.OnlineTrainingProgram;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BulkAllocationTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Test
+	void emailDomainsAreMatchedLiterally() throws Exception {
+		String prefix = UUID.randomUUID().toString();
+		int literal = user("ann@" + prefix + "a_b.com");
+		user("bob@" + prefix + "axb.com");
+		int programId = TestSupport.program(jdbc, "Cohort");
+
+		bulk("{\"programId\":" + programId + ",\"emailDomain\":\"" + prefix + "a_b.com\"}")
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.enrolled.length()").value(1))
+				.andExpect(jsonPath("$.enrolled[0]").value(literal));
+		bulk("{\"programId\":" + programId + ",\"emailDomain\":\"%\"}")
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.enrolled").isEmpty());
+	}
+
+	@Test
+	void nullUserIdsAreABadRequest() throws Exception {
+		int programId = TestSupport.program(jdbc, "Listed");
+		bulk("{\"programId\":" + programId + ",\"userIds\":[1,null]}").andExpect(status().isBadRequest());
+	}
+
+	private int user(String email) {
+		jdbc.update("INSERT INTO users (name, email, password, role) VALUES ('Test', ?, 'secret1', 'USER')", email);
+		return jdbc.queryForObject("SELECT user_id FROM users WHERE email = ?", Integer.class, email);
+	}
+
+	private ResultActions bulk(String body) throws Exception {
+		return mvc.perform(post("/api/admin/allocate-program/bulk").contentType(MediaType.APPLICATION_JSON).content(body));
+	}
+}
@@ -0,0 +1,87 @@
+package project.OnlineTrainingProgram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import project.OnlineTrainingProgram.Config.BulkheadDataSource;
+
+// The bulkhead in front of a stand-in pool that hands out dummy connections, or fails when told to
+class BulkheadDataSourceTests {
+
+	private volatile Exception poolFailure;
+
+	private final AbstractDataSource pool = new AbstractDataSource() {
+		@Override
+		public Connection getConnection() throws SQLException {
+			if (poolFailure instanceof SQLException e) throw e;
+			if (poolFailure instanceof RuntimeException e) throw e;
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+					(proxy, method, args) -> null);
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return getConnection();
+		}
+	};
+
+	@Test
+	void callersBeyondThePermitsAreRejectedAfterTheWait() throws Exception {
+		BulkheadDataSource bulkhead = new BulkheadDataSource(pool, 2, Duration.ofMillis(50));
+		Connection first = bulkhead.getConnection();
+		bulkhead.getConnection();
+		assertEquals(0, bulkhead.getAvailablePermits());
+
+		long started = System.nanoTime();
+		assertThrows(SQLTransientConnectionException.class, bulkhead::getConnection);
+		assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals(1, bulkhead.getRejected());
+
+		// closing gives the permit back, once
+		first.close();
+		first.close();
+		assertEquals(1, bulkhead.getAvailablePermits());
+		assertNotNull(bulkhead.getConnection());
+		assertEquals(0, bulkhead.getAvailablePermits());
+	}
+
+	@Test
+	void aQueuedCallerGetsThePermitOfAClosedConnection() throws Exception {
+		BulkheadDataSource bulkhead = new BulkheadDataSource(pool, 1, Duration.ofSeconds(5));
+		Connection held = bulkhead.getConnection();
+		CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+			try {
+				return bulkhead.getConnection();
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		while (bulkhead.getQueueLength() == 0) Thread.onSpinWait();
+		held.close();
+		assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+		assertEquals(0, bulkhead.getRejected());
+	}
+
+	@Test
+	void aFailingPoolDoesNotLeakPermits() {
+		BulkheadDataSource bulkhead = new BulkheadDataSource(pool, 2, Duration.ofMillis(50));
+		poolFailure = new SQLException("pool exhausted");
+		assertThrows(SQLException.class, bulkhead::getConnection);
+		poolFailure = new IllegalStateException("pool closed");
+		assertThrows(IllegalStateException.class, () -> bulkhead.getConnection("sa", ""));
+		assertEquals(2, bulkhead.getAvailablePermits());
+	}
+}
@@ -0,0 +1,88 @@
+package project.OnlineTrainingProgram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import project.OnlineTrainingProgram.Config.StatementCounter;
+import project.OnlineTrainingProgram.Service.TrainingService;
+import project.OnlineTrainingProgram.Service.UserService;
+
+@SpringBootTest(properties = {"app.delete.chunk-size=100",
+                              "spring.datasource.url=jdbc:h2:mem:deletes;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1"})
+@AutoConfigureMockMvc
+class CascadeDeleteTests {
+
+	private static final int USERS = 1000;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private TrainingService trainingService;
+
+	@Autowired
+	private UserService userService;
+
+	private int adminId;
+	private int programId;
+
+	@BeforeEach
+	void seed() {
+		List<Integer> userIds = TestSupport.users(jdbc, USERS + 1);
+		adminId = userIds.get(USERS);
+		programId = TestSupport.program(jdbc, "Popular");
+		TestSupport.allocate(jdbc, userIds.subList(0, USERS), programId, adminId);
+	}
+
+	@Test
+	void programDeleteRemovesAllocationsInBoundedChunks() throws Exception {
+		try (StatementCounter.Scope scope = StatementCounter.open()) {
+			mvc.perform(delete("/api/admin/trainings/" + programId))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.allocationsRemoved").value(USERS));
+			// a count, ten chunks of 100, the sweep, the program itself and the seat reconcile; no per-row statements
+			assertTrue(scope.count() <= 15, "statements: " + scope.count());
+		}
+		assertEquals(0, TestSupport.allocations(jdbc, programId));
+		assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM training_program WHERE program_id = ?", Integer.class, programId));
+	}
+
+	@Test
+	void progressIsReportedPerChunk() {
+		List<Long> progress = new ArrayList<>();
+		assertTrue(trainingService.removeTrainingProgram(programId, progress::add));
+		assertEquals(List.of(100L, 200L, 300L, 400L, 500L, 600L, 700L, 800L, 900L, 1000L), progress);
+	}
+
+	@Test
+	void deletingAUserKeepsTheAllocationsTheyMadeForOthers() {
+		int userId = jdbc.queryForObject("SELECT MIN(user_id) FROM user_program_allocation WHERE program_id = ?", Integer.class, programId);
+		assertEquals(1, userService.deleteUser(userId));
+		try (StatementCounter.Scope scope = StatementCounter.open()) {
+			assertEquals(0, userService.deleteUser(adminId));
+			// allocatedBy of the 999 remaining allocations is cleared 100 rows per statement
+			assertTrue(scope.repeated(10).keySet().stream().anyMatch(sql -> sql.contains("allocated_by = NULL")),
+			           scope.repeated(10).toString());
+		}
+		assertEquals(USERS - 1, jdbc.queryForObject("SELECT COUNT(*) FROM user_program_allocation WHERE program_id = ? AND allocated_by IS NULL",
+		                                            Integer.class, programId));
+		assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE user_id IN (?, ?)", Integer.class, userId, adminId));
+	}
+}
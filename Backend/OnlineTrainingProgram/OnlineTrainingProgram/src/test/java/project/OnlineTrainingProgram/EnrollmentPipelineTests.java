@@ -0,0 +1,156 @@
+package project.OnlineTrainingProgram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+import project.OnlineTrainingProgram.Service.EnrollmentPipeline;
+import project.OnlineTrainingProgram.Service.UserTrainingAllocationService;
+
+// The pipeline on its own: the service behind it is a stand-in that records batches and can be held or made to fail
+class EnrollmentPipelineTests {
+
+	private static final int MAX_BATCH = 4;
+
+	private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+	private final CountDownLatch writing = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private volatile boolean hold;
+	private volatile Throwable batchFailure;
+	private volatile RuntimeException rowFailure;
+
+	private final EnrollmentPipeline pipeline = new EnrollmentPipeline(true, 100, MAX_BATCH, Duration.ofSeconds(1),
+			Duration.ofMillis(200), new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class));
+
+	{
+		ReflectionTestUtils.setField(pipeline, "allocationService", new UserTrainingAllocationService() {
+			@Override
+			public List<EnrollmentResult> enrollAll(List<Integer> userIds, List<Integer> programIds) {
+				batchSizes.add(userIds.size());
+				writing.countDown();
+				if (hold) await(release);
+				if (batchFailure instanceof Error error) throw error;
+				if (batchFailure instanceof RuntimeException e) throw e;
+				return new ArrayList<>(Collections.nCopies(userIds.size(), EnrollmentResult.ENROLLED));
+			}
+
+			@Override
+			public EnrollmentResult enrollOrWaitlist(int userId, int programId, Integer allocatedById) {
+				if (rowFailure != null) throw rowFailure;
+				return EnrollmentResult.ENROLLED;
+			}
+		});
+		pipeline.start();
+	}
+
+	@AfterEach
+	void stop() {
+		release.countDown();
+		pipeline.stop();
+	}
+
+	@Test
+	void whatPilesUpDuringACommitBecomesTheNextBatches() throws Exception {
+		hold = true;
+		List<CompletableFuture<EnrollmentResult>> results = new ArrayList<>();
+		results.add(pipeline.submit(1, 1));
+		await(writing);
+		for (int i = 2; i <= 11; i++) {
+			results.add(pipeline.submit(i, 1));
+		}
+		release.countDown();
+		for (CompletableFuture<EnrollmentResult> result : results) {
+			assertEquals(EnrollmentResult.ENROLLED, result.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(List.of(1, 4, 4, 2), batchSizes);
+	}
+
+	@Test
+	void callersGiveUpWhileTheirBatchIsStuck() throws Exception {
+		hold = true;
+		CompletableFuture<EnrollmentResult> result = pipeline.submit(1, 1);
+		await(writing);
+		assertThrows(TimeoutException.class,
+				() -> result.get(pipeline.getResponseTimeout().toMillis(), TimeUnit.MILLISECONDS));
+		release.countDown();
+		assertEquals(EnrollmentResult.ENROLLED, result.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void aFailedBatchFailsEveryCallerAndTheWriterCarriesOn() throws Exception {
+		batchFailure = new IllegalStateException("database down");
+		rowFailure = new IllegalStateException("database down");
+		assertFailsWith(IllegalStateException.class, submitBatch());
+
+		// not even an Error leaves callers waiting or stops the writer
+		batchFailure = new StackOverflowError();
+		assertFailsWith(StackOverflowError.class, submitBatch());
+
+		batchFailure = null;
+		rowFailure = null;
+		assertEquals(EnrollmentResult.ENROLLED, pipeline.submit(1, 1).get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void stopCommitsWhatIsQueuedAndTurnsNewWorkAway() throws Exception {
+		hold = true;
+		List<CompletableFuture<EnrollmentResult>> results = new ArrayList<>();
+		results.add(pipeline.submit(1, 1));
+		await(writing);
+		for (int i = 2; i <= 6; i++) {
+			results.add(pipeline.submit(i, 1));
+		}
+		Thread stopper = new Thread(pipeline::stop);
+		stopper.start();
+		while (pipeline.isRunning()) Thread.onSpinWait();
+		assertNull(pipeline.submit(7, 1));
+		release.countDown();
+		stopper.join();
+		for (CompletableFuture<EnrollmentResult> result : results) {
+			assertEquals(EnrollmentResult.ENROLLED, result.get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	private List<CompletableFuture<EnrollmentResult>> submitBatch() {
+		List<CompletableFuture<EnrollmentResult>> results = new ArrayList<>();
+		for (int i = 1; i <= MAX_BATCH; i++) {
+			results.add(pipeline.submit(i, 1));
+		}
+		return results;
+	}
+
+	private static void assertFailsWith(Class<? extends Throwable> type, List<CompletableFuture<EnrollmentResult>> results) {
+		for (CompletableFuture<EnrollmentResult> result : results) {
+			ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+			assertInstanceOf(type, e.getCause());
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AssertionError(e);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package project.OnlineTrainingProgram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import project.OnlineTrainingProgram.Config.IdempotencyFilter;
+import project.OnlineTrainingProgram.Config.IdempotencyStore;
+
+// IdempotencyFilter in front of a stand-in handler that counts its calls; no application context needed
+class IdempotencyTests {
+
+	private final IdempotencyStore store = new IdempotencyStore(Duration.ofHours(1), 100);
+	private final IdempotencyFilter filter = new IdempotencyFilter();
+	private final AtomicInteger handled = new AtomicInteger();
+
+	{
+		ReflectionTestUtils.setField(filter, "store", store);
+		ReflectionTestUtils.setField(filter, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(filter, "waitTimeout", Duration.ofSeconds(5));
+	}
+
+	@Test
+	void aConcurrentDuplicateWaitsForTheRequestInFlight() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		FilterChain slow = (request, response) -> {
+			entered.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(response, 200, "enrolled");
+		};
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		Future<MockHttpServletResponse> first = pool.submit(() -> send("k1", "{\"userId\":\"1\"}", slow));
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		Future<MockHttpServletResponse> duplicate = pool.submit(() -> send("k1", "{\"userId\":\"1\"}", slow));
+		Thread.sleep(100);
+		assertFalse(duplicate.isDone());
+		release.countDown();
+
+		assertEquals("enrolled", first.get(5, TimeUnit.SECONDS).getContentAsString());
+		MockHttpServletResponse replayed = duplicate.get(5, TimeUnit.SECONDS);
+		assertEquals(200, replayed.getStatus());
+		assertEquals("enrolled", replayed.getContentAsString());
+		assertEquals("true", replayed.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+		assertEquals(1, handled.get());
+		pool.shutdown();
+	}
+
+	@Test
+	void theSameKeyWithADifferentBodyIsRejected() throws Exception {
+		FilterChain ok = (request, response) -> respond(response, 200, "enrolled");
+		assertEquals(200, send("k1", "{\"userId\":\"1\"}", ok).getStatus());
+		assertEquals(422, send("k1", "{\"userId\":\"2\"}", ok).getStatus());
+		assertEquals(1, handled.get());
+	}
+
+	@Test
+	void serverErrorsAreNotStored() throws Exception {
+		assertEquals(500, send("k1", "{}", (request, response) -> respond(response, 500, "down")).getStatus());
+		MockHttpServletResponse retry = send("k1", "{}", (request, response) -> respond(response, 200, "enrolled"));
+		assertEquals(200, retry.getStatus());
+		assertNull(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+		assertEquals(2, handled.get());
+	}
+
+	@Test
+	void storedResponsesExpire() throws Exception {
+		IdempotencyStore shortLived = new IdempotencyStore(Duration.ofMillis(50), 2);
+		IdempotencyStore.Claim claim = shortLived.claim("k1", new byte[0]);
+		assertTrue(claim.owner());
+		shortLived.complete(claim.entry(), new IdempotencyStore.StoredResponse(200, null, new byte[0]));
+		shortLived.claim("k2", new byte[0]);
+		assertFalse(shortLived.claim("k1", new byte[0]).owner());
+		// full of live keys: new keys run without deduplication
+		assertNull(shortLived.claim("k3", new byte[0]));
+
+		Thread.sleep(100);
+		assertTrue(shortLived.claim("k1", new byte[0]).owner());
+		// the expired k2 was swept to make room
+		assertEquals(1, shortLived.size());
+	}
+
+	private MockHttpServletResponse send(String key, String body, FilterChain chain) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/user/enroll");
+		request.addHeader(IdempotencyFilter.HEADER, key);
+		request.setContent(body.getBytes(StandardCharsets.UTF_8));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, chain);
+		return response;
+	}
+
+	private void respond(ServletResponse response, int status, String body) throws IOException {
+		handled.incrementAndGet();
+		((HttpServletResponse) response).setStatus(status);
+		response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,64 @@
+package project.OnlineTrainingProgram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import project.OnlineTrainingProgram.Model.ImportResult;
+import project.OnlineTrainingProgram.Service.ImportService;
+import project.OnlineTrainingProgram.Service.UserService;
+
+@SpringBootTest
+class ImportTests {
+
+	@Autowired
+	private ImportService importService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Test
+	void emailsDifferingOnlyInCaseAreDuplicates() {
+		String domain = UUID.randomUUID() + ".example.com";
+		// signed up with the case it was typed in
+		jdbc.update("INSERT INTO users (name, email, password, role) VALUES ('Ann', ?, 'secret1', 'USER')", "Ann@" + domain);
+
+		String csv = "name,email,password,phoneNo,role\n" +
+		             "Ann,ANN@" + domain + ",secret1,,USER\n" +
+		             "Bob,bob@" + domain + ",secret1,,USER\n" +
+		             "Bob,Bob@" + domain + ",secret1,,USER\n";
+		ImportResult result = importService.importUsers(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), null, null, 0);
+
+		assertEquals(1, result.getImported());
+		assertEquals(List.of(1, 3), result.getErrors().stream().map(ImportResult.RowError::getRow).toList());
+		assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE LOWER(email) LIKE ?", Integer.class, "%@" + domain));
+	}
+
+	@Test
+	void rowsReplayedAfterADatabaseRejectionCanLogIn() {
+		String domain = UUID.randomUUID() + ".example.com";
+		// the name is too long for its column: only the database notices, and the chunk is replayed row by row
+		String csv = "name,email,password,phoneNo,role\n" +
+		             "Ann,ann@" + domain + ",secret1,,USER\n" +
+		             "x".repeat(300) + ",long@" + domain + ",secret1,,USER\n" +
+		             "Bob,bob@" + domain + ",secret2,,USER\n";
+		ImportResult result = importService.importUsers(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), null, null, 0);
+
+		assertEquals(2, result.getImported());
+		assertEquals(List.of(2), result.getErrors().stream().map(ImportResult.RowError::getRow).toList());
+		assertNotNull(userService.authenticate("ann@" + domain, "secret1"));
+		assertNotNull(userService.authenticate("bob@" + domain, "secret2"));
+	}
+}
@@ -0,0 +1,133 @@
+package project.OnlineTrainingProgram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import project.OnlineTrainingProgram.Config.PasswordHasher;
+import project.OnlineTrainingProgram.Config.StatementCounter;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:passwords;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class PasswordHashingTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private PasswordHasher passwordHasher;
+
+	@Test
+	void signupStoresAHash() throws Exception {
+		String email = UUID.randomUUID() + "@example.com";
+		mvc.perform(post("/api/signup").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Test\",\"email\":\"" + email + "\",\"password\":\"secret1\",\"phone\":\"9000000000\",\"role\":\"USER\"}"))
+				.andExpect(status().isOk());
+		assertTrue(passwordHasher.isHash(storedPassword(email)));
+		login(email, "secret1").andExpect(status().isOk());
+	}
+
+	@Test
+	void wrongPasswordIsOneQueryAndA401() throws Exception {
+		String email = insertUser(new BCryptPasswordEncoder(10).encode("secret1"));
+		try (StatementCounter.Scope scope = StatementCounter.open()) {
+			login(email, "wrong").andExpect(status().isUnauthorized());
+			assertEquals(1, scope.count());
+		}
+		login("nobody-" + email, "secret1").andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void plainTextPasswordsAreUpgradedOnLogin() throws Exception {
+		String email = insertUser("secret1");
+		login(email, "secret1").andExpect(status().isOk());
+		String stored = awaitRehash(email, "secret1");
+		assertTrue(new BCryptPasswordEncoder().matches("secret1", stored));
+		login(email, "secret1").andExpect(status().isOk());
+		login(email, "wrong").andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void hashesWithAnotherCostAreUpgradedOnLogin() throws Exception {
+		String old = new BCryptPasswordEncoder(4).encode("secret1");
+		String email = insertUser(old);
+		login(email, "secret1").andExpect(status().isOk());
+		String stored = awaitRehash(email, old);
+		assertTrue(stored.startsWith("$2a$10$"), stored);
+		login(email, "secret1").andExpect(status().isOk());
+	}
+
+	@Test
+	void hashesAreNeitherShownToNorTakenFromClients() throws Exception {
+		String email = insertUser(new BCryptPasswordEncoder(10).encode("secret1"));
+		int userId = jdbc.queryForObject("SELECT user_id FROM users WHERE email = ?", Integer.class, email);
+		mvc.perform(get("/api/users/" + userId)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.email").value(email))
+				.andExpect(jsonPath("$.password").doesNotExist());
+		// the user list is a streaming body: wait for the async part before reading it
+		MvcResult list = mvc.perform(get("/api/admin/users").param("limit", "1000")).andExpect(request().asyncStarted()).andReturn();
+		mvc.perform(asyncDispatch(list)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[0].email").exists())
+				.andExpect(jsonPath("$..password").isEmpty());
+
+		// an edit without a password keeps the stored one
+		String user = "\"userId\":" + userId + ",\"name\":\"Renamed\",\"email\":\"" + email + "\",\"role\":\"USER\"";
+		mvc.perform(post("/api/users").contentType(MediaType.APPLICATION_JSON).content("{" + user + ",\"password\":\"\"}"))
+				.andExpect(status().isOk());
+		login(email, "secret1").andExpect(status().isOk());
+
+		// a ready-made hash is just another password: it is hashed, not stored as sent
+		String chosen = new BCryptPasswordEncoder(4).encode("attacker");
+		mvc.perform(post("/api/users").contentType(MediaType.APPLICATION_JSON).content("{" + user + ",\"password\":\"" + chosen + "\"}"))
+				.andExpect(status().isOk());
+		assertNotEquals(chosen, storedPassword(email));
+		login(email, "attacker").andExpect(status().isUnauthorized());
+	}
+
+	private String insertUser(String password) {
+		String email = UUID.randomUUID() + "@example.com";
+		jdbc.update("INSERT INTO users (name, email, password, role) VALUES ('Test', ?, ?, 'USER')", email, password);
+		return email;
+	}
+
+	private ResultActions login(String email, String password) throws Exception {
+		return mvc.perform(post("/api/login").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}"));
+	}
+
+	private String storedPassword(String email) {
+		return jdbc.queryForObject("SELECT password FROM users WHERE email = ?", String.class, email);
+	}
+
+	// the upgrade is written in the background after the login has answered
+	private String awaitRehash(String email, String old) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			String stored = storedPassword(email);
+			if (!stored.equals(old)) return stored;
+			Thread.sleep(50);
+		}
+		throw new AssertionError("password of " + email + " was not rehashed");
+	}
+}
@@ -0,0 +1,207 @@
+package project.OnlineTrainingProgram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static project.OnlineTrainingProgram.TestSupport.allocations;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import project.OnlineTrainingProgram.Dao.TrainingDAO;
+import project.OnlineTrainingProgram.Dao.UserTrainingAllocationDAO;
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+import project.OnlineTrainingProgram.Model.SeatUsage;
+import project.OnlineTrainingProgram.Model.TrainingModel;
+import project.OnlineTrainingProgram.Model.UserTrainingAllocationModel;
+import project.OnlineTrainingProgram.Service.SeatLedger;
+import project.OnlineTrainingProgram.Service.TrainingService;
+import project.OnlineTrainingProgram.Service.UserTrainingAllocationService;
+
+@SpringBootTest
+class SeatCapacityTests {
+
+	private static final int USERS = 400;
+	private static final int CAPACITY = 25;
+
+	@Autowired
+	private TrainingService trainingService;
+
+	@Autowired
+	private UserTrainingAllocationService allocationService;
+
+	@Autowired
+	private SeatLedger seatLedger;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	private List<Integer> userIds;
+	private int programId;
+
+	@BeforeEach
+	void seed() {
+		userIds = TestSupport.users(jdbc, USERS);
+		TrainingModel program = new TrainingModel();
+		program.setProgramName("Limited");
+		program.setDescription("desc");
+		program.setPrice(10);
+		program.setCapacity(CAPACITY);
+		trainingService.saveTraining(program);
+		programId = program.getProgramId();
+	}
+
+	@Test
+	void concurrentEnrollmentsNeverOversell() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(32);
+		List<Future<EnrollmentResult>> results = new ArrayList<>();
+		for (int userId : userIds) {
+			results.add(pool.submit(() -> allocationService.enroll(userId, programId, null)));
+		}
+		Map<EnrollmentResult, AtomicInteger> outcomes = new ConcurrentHashMap<>();
+		for (Future<EnrollmentResult> result : results) {
+			outcomes.computeIfAbsent(result.get(), r -> new AtomicInteger()).incrementAndGet();
+		}
+		pool.shutdown();
+
+		assertEquals(CAPACITY, outcomes.get(EnrollmentResult.ENROLLED).get());
+		assertEquals(USERS - CAPACITY, outcomes.get(EnrollmentResult.PROGRAM_FULL).get());
+		assertEquals(CAPACITY, allocations(jdbc, programId));
+		assertEquals(0, seatLedger.available(programId));
+	}
+
+	@Test
+	void cancelFreesASeatAndDuplicatesAreStillReported() {
+		for (int i = 0; i < CAPACITY; i++) {
+			assertEquals(EnrollmentResult.ENROLLED, allocationService.enroll(userIds.get(i), programId, null));
+		}
+		assertEquals(EnrollmentResult.ALREADY_ENROLLED, allocationService.enroll(userIds.get(0), programId, null));
+		assertEquals(EnrollmentResult.PROGRAM_FULL, allocationService.enroll(userIds.get(CAPACITY), programId, null));
+
+		allocationService.deleteAllocation(userIds.get(0), programId);
+		assertEquals(EnrollmentResult.ENROLLED, allocationService.enroll(userIds.get(CAPACITY), programId, null));
+		assertEquals(CAPACITY, allocations(jdbc, programId));
+	}
+
+	@Test
+	void reconcileCorrectsWritesThatBypassedTheLedger() {
+		allocationService.enroll(userIds.get(0), programId, null);
+		jdbc.update("INSERT INTO user_program_allocation (user_id, program_id, allocation_date) VALUES (?, ?, CURRENT_DATE)",
+		            userIds.get(1), programId);
+		assertEquals(CAPACITY - 1, seatLedger.available(programId));
+		seatLedger.reconcile();
+		assertEquals(CAPACITY - 2, seatLedger.available(programId));
+	}
+
+	@Test
+	void movingAnAllocationTakesASeatInTheNewProgram() {
+		TrainingModel other = new TrainingModel();
+		other.setProgramName("Other");
+		other.setDescription("desc");
+		other.setPrice(10);
+		other.setCapacity(1);
+		trainingService.saveTraining(other);
+		allocationService.enroll(userIds.get(0), programId, null);
+		allocationService.enroll(userIds.get(1), programId, null);
+		UserTrainingAllocationModel allocation = new UserTrainingAllocationModel();
+		allocation.setAllocationId(jdbc.queryForObject("SELECT allocation_id FROM user_program_allocation WHERE user_id = ? AND program_id = ?",
+		                                               Integer.class, userIds.get(0), programId));
+		allocation.setUserId(userIds.get(0));
+		allocation.setProgramId(other.getProgramId());
+		allocation.setAllocationDate(LocalDate.now());
+
+		allocationService.saveAllocation(allocation);
+		assertEquals(CAPACITY - 1, seatLedger.available(programId));
+		assertEquals(0, seatLedger.available(other.getProgramId()));
+
+		// the other program is full now
+		allocation.setAllocationId(jdbc.queryForObject("SELECT allocation_id FROM user_program_allocation WHERE user_id = ? AND program_id = ?",
+		                                               Integer.class, userIds.get(1), programId));
+		allocation.setUserId(userIds.get(1));
+		assertThrows(IllegalStateException.class, () -> allocationService.saveAllocation(allocation));
+		assertEquals(CAPACITY - 1, seatLedger.available(programId));
+	}
+
+	@Test
+	void reconcileKeepsSeatChangesMadeDuringItsQuery() {
+		// the query counts 4 seats, but meanwhile a release and a new enrollment left the ledger at 5 again
+		int[] taken = {5};
+		SeatLedger ledger = new SeatLedger();
+		ReflectionTestUtils.setField(ledger, "trainingDAO", new TrainingDAO() {
+			@Override
+			public List<SeatUsage> getSeatUsage(Integer id) {
+				List<SeatUsage> usage = List.of(new SeatUsage(1, 10, taken[0]));
+				if (taken[0] == 4) {
+					ledger.markRelease(1);
+					ledger.release(1);
+					ledger.tryReserve(1);
+					ledger.confirm(1, 1);
+				}
+				return usage;
+			}
+		});
+		ledger.reconcile();
+		taken[0] = 4;
+		ledger.reconcile();
+		assertEquals(5, ledger.available(1));
+	}
+
+	@Test
+	void reconcileBetweenACancelAndItsReleaseDoesNotFreeTheSeatTwice() {
+		allocationService.enroll(userIds.get(0), programId, null);
+		allocationService.enroll(userIds.get(1), programId, null);
+		// a reconcile lands after the DELETE has committed but before the service releases the seat
+		UserTrainingAllocationService target = AopTestUtils.getUltimateTargetObject(allocationService);
+		UserTrainingAllocationDAO allocationDAO = (UserTrainingAllocationDAO) ReflectionTestUtils.getField(target, "allocationDAO");
+		ReflectionTestUtils.setField(target, "allocationDAO", new UserTrainingAllocationDAO() {
+			@Override
+			public boolean deleteByUserAndProgram(int userId, int programId) {
+				boolean deleted = allocationDAO.deleteByUserAndProgram(userId, programId);
+				seatLedger.reconcile(programId);
+				return deleted;
+			}
+		});
+		try {
+			assertTrue(allocationService.deleteAllocation(userIds.get(0), programId));
+		} finally {
+			ReflectionTestUtils.setField(target, "allocationDAO", allocationDAO);
+		}
+		assertEquals(CAPACITY - 1, seatLedger.available(programId));
+		seatLedger.reconcile(programId);
+		assertEquals(CAPACITY - 1, seatLedger.available(programId));
+	}
+
+	@Test
+	void editsWithoutACapacityKeepTheLimit() {
+		allocationService.enroll(userIds.get(0), programId, null);
+		TrainingModel edit = new TrainingModel();
+		edit.setProgramId(programId);
+		edit.setProgramName("Renamed");
+		edit.setDescription("desc");
+		edit.setPrice(12);
+		edit.setStatus("ACTIVE");
+		trainingService.saveTraining(edit);
+		assertEquals(CAPACITY, trainingService.getTrainingById(programId).getCapacity());
+		assertEquals(CAPACITY - 1, seatLedger.available(programId));
+
+		assertTrue(trainingService.updateCapacity(programId, null));
+		assertNull(trainingService.getTrainingById(programId).getCapacity());
+		assertNull(seatLedger.available(programId));
+	}
+}
@@ -0,0 +1,155 @@
+package project.OnlineTrainingProgram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import project.OnlineTrainingProgram.Config.SessionTokens;
+import project.OnlineTrainingProgram.Config.StatementCounter;
+import project.OnlineTrainingProgram.Entity.User;
+
+@SpringBootTest(properties = {"app.auth.enabled=true",
+                              "spring.datasource.url=jdbc:h2:mem:tokens;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1"})
+@AutoConfigureMockMvc
+class SessionTokenTests {
+
+	private static final String KEY_1 = "k1:" + Base64.getEncoder().encodeToString(new byte[32]);
+	private static final String KEY_2 = "k2:" + Base64.getEncoder().encodeToString("a second key of thirty-two bytes".getBytes());
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private SessionTokens sessionTokens;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private int userId;
+	private String token;
+
+	@BeforeEach
+	void login() throws Exception {
+		String email = UUID.randomUUID() + "@example.com";
+		jdbc.update("INSERT INTO users (name, email, password, role) VALUES ('Test', ?, 'secret1', 'USER')", email);
+		userId = jdbc.queryForObject("SELECT user_id FROM users WHERE email = ?", Integer.class, email);
+		String response = mvc.perform(post("/api/login").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"email\":\"" + email + "\",\"password\":\"secret1\"}"))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		token = objectMapper.readTree(response).get("token").asText();
+	}
+
+	@Test
+	void userEndpointsNeedAValidToken() throws Exception {
+		mvc.perform(get("/api/user/my-trainings/" + userId)).andExpect(status().isUnauthorized());
+		mvc.perform(get("/api/user/my-trainings/" + userId).header(HttpHeaders.AUTHORIZATION, "Bearer " + token + "x"))
+				.andExpect(status().isUnauthorized());
+		// only the allocation query: the user is vouched for by the token
+		try (StatementCounter.Scope scope = StatementCounter.open()) {
+			mvc.perform(get("/api/user/my-trainings/" + userId).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+					.andExpect(status().isOk());
+			assertEquals(1, scope.count());
+		}
+	}
+
+	@Test
+	void usersActOnlyForThemselvesAndStayOutOfAdmin() throws Exception {
+		mvc.perform(get("/api/user/my-trainings/" + (userId + 1)).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isForbidden());
+		mvc.perform(get("/api/admin/users").param("limit", "1").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isForbidden());
+		String admin = sessionTokens.issue(userId, User.Role.ADMIN);
+		mvc.perform(get("/api/admin/users").param("limit", "1").header(HttpHeaders.AUTHORIZATION, "Bearer " + admin))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void signupCannotCreateAnAdmin() throws Exception {
+		String email = UUID.randomUUID() + "@example.com";
+		mvc.perform(post("/api/signup").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Eve\",\"email\":\"" + email + "\",\"phone\":\"9000000000\",\"password\":\"secret1\",\"role\":\"ADMIN\"}"))
+				.andExpect(status().isForbidden());
+		assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE email = ?", Integer.class, email));
+
+		String response = mvc.perform(post("/api/signup").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Eve\",\"email\":\"" + email + "\",\"phone\":\"9000000000\",\"password\":\"secret1\"}"))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		String signedUp = objectMapper.readTree(response).get("token").asText();
+		mvc.perform(get("/api/admin/users").param("limit", "1").header(HttpHeaders.AUTHORIZATION, "Bearer " + signedUp))
+				.andExpect(status().isForbidden());
+	}
+
+	@Test
+	void encodedAndParameterisedPathsAreStillProtected() throws Exception {
+		mvc.perform(get("/api;x=1/admin/users").param("limit", "1")).andExpect(status().isUnauthorized());
+		mvc.perform(get(URI.create("/api/%61dmin/users?limit=1"))).andExpect(status().isUnauthorized());
+		mvc.perform(get(URI.create("/api/%61dmin/users?limit=1")).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isForbidden());
+		mvc.perform(get("/api/user/../admin/users").param("limit", "1").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isForbidden());
+	}
+
+	@Test
+	void uiEndpointsNeedATokenAndTheAdminRole() throws Exception {
+		mvc.perform(get("/api/users").param("limit", "1")).andExpect(status().isUnauthorized());
+		mvc.perform(get("/api/allocations")).andExpect(status().isUnauthorized());
+		mvc.perform(get("/api/training")).andExpect(status().isUnauthorized());
+		mvc.perform(get("/api/users").param("limit", "1").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isForbidden());
+		mvc.perform(get("/api/allocations").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isForbidden());
+		mvc.perform(post("/api/training").contentType(MediaType.APPLICATION_JSON).content("{}")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)).andExpect(status().isForbidden());
+		// the catalog stays readable for users
+		mvc.perform(get("/api/training").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk());
+		String admin = sessionTokens.issue(userId, User.Role.ADMIN);
+		mvc.perform(get("/api/users").param("limit", "1").header(HttpHeaders.AUTHORIZATION, "Bearer " + admin))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void rotatedKeysKeepEarlierTokensValid() throws Exception {
+		String admin = sessionTokens.issue(userId, User.Role.ADMIN);
+		mvc.perform(post("/api/admin/auth/rotate-key").header(HttpHeaders.AUTHORIZATION, "Bearer " + admin))
+				.andExpect(status().isOk());
+		assertNotNull(sessionTokens.verify(token));
+		assertEquals(userId, sessionTokens.verify(sessionTokens.issue(userId, User.Role.USER)).userId());
+
+		// configured rotation: k2 signs, k1 is still accepted, an unknown key is not
+		SessionTokens old = new SessionTokens(KEY_1, Duration.ofHours(1));
+		SessionTokens rotated = new SessionTokens(KEY_2 + "," + KEY_1, Duration.ofHours(1));
+		assertEquals(User.Role.ADMIN, rotated.verify(old.issue(7, User.Role.ADMIN)).role());
+		assertNull(old.verify(rotated.issue(7, User.Role.ADMIN)));
+		assertNull(sessionTokens.verify(old.issue(7, User.Role.ADMIN)));
+	}
+
+	@Test
+	void expiredTokensAreRejected() {
+		SessionTokens expired = new SessionTokens(KEY_1, Duration.ofSeconds(-1));
+		assertNull(expired.verify(expired.issue(userId, User.Role.USER)));
+	}
+}
@@ -0,0 +1,137 @@
+package project.OnlineTrainingProgram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import project.OnlineTrainingProgram.Config.StatementCounter;
+
+// Pins the number of SQL statements each endpoint runs, so a query added to a hot path shows up as a failing test
+@SpringBootTest
+@AutoConfigureMockMvc
+class StatementCountTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	private int userId;
+	private int programId;
+
+	@BeforeEach
+	void seed() {
+		String email = UUID.randomUUID() + "@example.com";
+		jdbc.update("INSERT INTO users (name, email, password, role) VALUES ('Test', ?, 'secret1', 'USER')", email);
+		userId = jdbc.queryForObject("SELECT user_id FROM users WHERE email = ?", Integer.class, email);
+		String name = "Program " + UUID.randomUUID();
+		jdbc.update("INSERT INTO training_program (program_name, description, price, status) VALUES (?, 'desc', 10, 'ACTIVE')", name);
+		programId = jdbc.queryForObject("SELECT program_id FROM training_program WHERE program_name = ?", Integer.class, name);
+	}
+
+	@Test
+	void catalogIsOneQueryThenServedFromCache() throws Exception {
+		mvc.perform(post("/api/admin/trainings").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"programName\":\"Cached\",\"description\":\"d\",\"price\":1}"));
+		assertEquals(1, statements(get("/api/user/trainings")));
+		assertEquals(0, statements(get("/api/user/trainings")));
+	}
+
+	@Test
+	void enrollIsOneInsert() throws Exception {
+		assertEquals(1, statements(post("/api/user/enroll").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"userId\":\"" + userId + "\",\"trainingId\":\"" + programId + "\"}")));
+	}
+
+	@Test
+	void duplicateEnrollProbesWhyNothingWasInserted() throws Exception {
+		String body = "{\"userId\":\"" + userId + "\",\"trainingId\":\"" + programId + "\"}";
+		mvc.perform(post("/api/user/enroll").contentType(MediaType.APPLICATION_JSON).content(body)).andExpect(status().isOk());
+		// the INSERT hits the conflict, then two probes tell "already enrolled" apart from a missing user or program
+		assertEquals(3, statements(post("/api/user/enroll").contentType(MediaType.APPLICATION_JSON).content(body), status().isBadRequest()));
+	}
+
+	@Test
+	void retryWithIdempotencyKeyIsReplayedWithoutSql() throws Exception {
+		String body = "{\"userId\":\"" + userId + "\",\"trainingId\":\"" + programId + "\"}";
+		String key = UUID.randomUUID().toString();
+		assertEquals(1, statements(post("/api/user/enroll").header("Idempotency-Key", key).contentType(MediaType.APPLICATION_JSON).content(body)));
+		assertEquals(0, statements(post("/api/user/enroll").header("Idempotency-Key", key).contentType(MediaType.APPLICATION_JSON).content(body)));
+	}
+
+	@Test
+	void cancelEnrollmentIsOneDelete() throws Exception {
+		String body = "{\"userId\":\"" + userId + "\",\"trainingId\":\"" + programId + "\"}";
+		mvc.perform(post("/api/user/enroll").contentType(MediaType.APPLICATION_JSON).content(body)).andExpect(status().isOk());
+		assertEquals(1, statements(delete("/api/user/cancel-enrollment").contentType(MediaType.APPLICATION_JSON).content(body)));
+	}
+
+	@Test
+	void myTrainingsIsOneProjectionQuery() throws Exception {
+		// allocated by an admin, so an eager graph would also pull in the allocating user
+		jdbc.update("INSERT INTO user_program_allocation (user_id, program_id, allocated_by, allocation_date) VALUES (?, ?, ?, CURRENT_DATE)",
+		            userId, programId, userId);
+		// just the projection: a non-empty list proves the user exists
+		assertEquals(1, statements(get("/api/user/my-trainings/" + userId)));
+		mvc.perform(get("/api/user/my-trainings/" + userId))
+				.andExpect(jsonPath("$.trainings.length()").value(1))
+				.andExpect(jsonPath("$.trainings[0].programId").value(programId))
+				.andExpect(jsonPath("$.trainings[0].allocationDate").exists());
+	}
+
+	@Test
+	void detailReadsAreOneQueryEach() throws Exception {
+		jdbc.update("INSERT INTO user_program_allocation (user_id, program_id, allocated_by, allocation_date) VALUES (?, ?, ?, CURRENT_DATE)",
+		            userId, programId, userId);
+		int allocationId = jdbc.queryForObject("SELECT allocation_id FROM user_program_allocation WHERE user_id = ?", Integer.class, userId);
+		// lazy associations: the ids come from the allocation row, no user or program selects
+		assertEquals(1, statements(get("/api/allocations/" + allocationId)));
+		mvc.perform(get("/api/allocations/" + allocationId))
+				.andExpect(jsonPath("$.programId").value(programId))
+				.andExpect(jsonPath("$.allocatedById").value(userId));
+		// the allocation count comes from a subquery instead of loading the user's allocations
+		assertEquals(1, statements(get("/api/users/" + userId)));
+		mvc.perform(get("/api/users/" + userId)).andExpect(jsonPath("$.programCount").value(1));
+	}
+
+	@Test
+	void statusUpdateIsOneUpdate() throws Exception {
+		assertEquals(1, statements(put("/api/admin/trainings/" + programId + "/status").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"status\":\"COMPLETED\"}")));
+	}
+
+	@Test
+	void keysetPageIsOneQuery() throws Exception {
+		assertEquals(1, statements(get("/api/users").param("limit", "10")));
+	}
+
+	private int statements(RequestBuilder request) throws Exception {
+		return statements(request, status().is2xxSuccessful());
+	}
+
+	// a count is only meaningful for the outcome it was measured on
+	private int statements(RequestBuilder request, ResultMatcher expected) throws Exception {
+		try (StatementCounter.Scope scope = StatementCounter.open()) {
+			mvc.perform(request).andExpect(expected);
+			return scope.count();
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package project.OnlineTrainingProgram;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Seed data for the integration tests. Every call works on a fresh batch of rows, so tests sharing a database only
+// ever see their own.
+final class TestSupport {
+
+	private TestSupport() {}
+
+	// `count` USER rows inserted in one statement; their ids in insert order
+	static List<Integer> users(JdbcTemplate jdbc, int count) {
+		String batch = UUID.randomUUID().toString();
+		jdbc.update("INSERT INTO users (name, email, password, role) " +
+		            "SELECT 'user' || r.n, 'user' || r.n || '-' || ? || '@example.com', 'secret1', 'USER' FROM SYSTEM_RANGE(1, ?) AS r(n)",
+		            batch, count);
+		return jdbc.queryForList("SELECT user_id FROM users WHERE email LIKE ? ORDER BY user_id", Integer.class, "%-" + batch + "@example.com");
+	}
+
+	// an ACTIVE program without a capacity, inserted directly (no seat ledger or cache involved)
+	static int program(JdbcTemplate jdbc, String name) {
+		String unique = name + " " + UUID.randomUUID();
+		jdbc.update("INSERT INTO training_program (program_name, description, price, status) VALUES (?, 'desc', 10, 'ACTIVE')", unique);
+		return jdbc.queryForObject("SELECT program_id FROM training_program WHERE program_name = ?", Integer.class, unique);
+	}
+
+	// enrolls all the users in one statement, bypassing the seat ledger
+	static void allocate(JdbcTemplate jdbc, List<Integer> userIds, int programId, Integer allocatedBy) {
+		jdbc.update("INSERT INTO user_program_allocation (user_id, program_id, allocated_by, allocation_date) " +
+		            "SELECT user_id, ?, ?, CURRENT_DATE FROM users WHERE user_id = ANY(?)",
+		            programId, allocatedBy, userIds.toArray(new Integer[0]));
+	}
+
+	// live allocations of the program
+	static int allocations(JdbcTemplate jdbc, int programId) {
+		return jdbc.queryForObject("SELECT COUNT(*) FROM user_program_allocation WHERE program_id = ?", Integer.class, programId);
+	}
+}
@@ -0,0 +1,188 @@
+package project.OnlineTrainingProgram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static project.OnlineTrainingProgram.TestSupport.allocations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import project.OnlineTrainingProgram.Model.BulkAllocationRequest;
+import project.OnlineTrainingProgram.Model.EnrollmentResult;
+import project.OnlineTrainingProgram.Model.TrainingModel;
+import project.OnlineTrainingProgram.Model.UserTrainingAllocationModel;
+import project.OnlineTrainingProgram.Service.SeatLedger;
+import project.OnlineTrainingProgram.Service.TrainingService;
+import project.OnlineTrainingProgram.Service.UserTrainingAllocationService;
+
+@SpringBootTest
+class WaitlistTests {
+
+	private static final int USERS = 300;
+	private static final int CAPACITY = 100;
+
+	@Autowired
+	private TrainingService trainingService;
+
+	@Autowired
+	private UserTrainingAllocationService allocationService;
+
+	@Autowired
+	private SeatLedger seatLedger;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	private List<Integer> userIds;
+	private int programId;
+
+	@BeforeEach
+	void seed() {
+		userIds = TestSupport.users(jdbc, USERS);
+		TrainingModel program = new TrainingModel();
+		program.setProgramName("Waitlisted");
+		program.setDescription("desc");
+		program.setPrice(10);
+		program.setCapacity(CAPACITY);
+		trainingService.saveTraining(program);
+		programId = program.getProgramId();
+		for (int i = 0; i < CAPACITY; i++) {
+			assertEquals(EnrollmentResult.ENROLLED, allocationService.enroll(userIds.get(i), programId, null));
+		}
+	}
+
+	@Test
+	void firstWaiterGetsTheFreedSeat() throws Exception {
+		for (int i = CAPACITY; i < CAPACITY + 3; i++) {
+			assertEquals(EnrollmentResult.WAITLISTED, allocationService.enrollOrWaitlist(userIds.get(i), programId, null));
+		}
+		assertEquals(EnrollmentResult.WAITLISTED, allocationService.enrollOrWaitlist(userIds.get(CAPACITY), programId, null));
+		assertEquals(EnrollmentResult.ALREADY_ENROLLED, allocationService.enrollOrWaitlist(userIds.get(0), programId, null));
+		assertEquals(3, waiting());
+
+		allocationService.deleteAllocation(userIds.get(0), programId);
+		await(() -> isEnrolled(userIds.get(CAPACITY)));
+		assertFalse(isEnrolled(userIds.get(CAPACITY + 1)));
+		assertEquals(2, waiting());
+		assertEquals(CAPACITY, allocations(jdbc, programId));
+		assertEquals(0, seatLedger.available(programId));
+	}
+
+	@Test
+	void usersWhoLeftTheWaitlistAreSkipped() throws Exception {
+		allocationService.enrollOrWaitlist(userIds.get(CAPACITY), programId, null);
+		allocationService.enrollOrWaitlist(userIds.get(CAPACITY + 1), programId, null);
+		assertTrue(allocationService.leaveWaitlist(userIds.get(CAPACITY), programId));
+		assertFalse(allocationService.leaveWaitlist(userIds.get(CAPACITY), programId));
+
+		allocationService.deleteAllocation(userIds.get(0), programId);
+		await(() -> isEnrolled(userIds.get(CAPACITY + 1)));
+		assertFalse(isEnrolled(userIds.get(CAPACITY)));
+		assertEquals(0, waiting());
+	}
+
+	@Test
+	void massCancellationIsPromotedInOrderAndInFewTransactions() throws Exception {
+		for (int i = CAPACITY; i < USERS; i++) {
+			assertEquals(EnrollmentResult.WAITLISTED, allocationService.enrollOrWaitlist(userIds.get(i), programId, null));
+		}
+		DistributionSummary batches = meterRegistry.get("app.waitlist.promotion.batch.size").summary();
+		long batchesBefore = batches.count();
+
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		List<Future<Boolean>> cancels = new ArrayList<>();
+		for (int i = 0; i < CAPACITY; i++) {
+			int userId = userIds.get(i);
+			cancels.add(pool.submit(() -> allocationService.deleteAllocation(userId, programId)));
+		}
+		for (Future<Boolean> cancel : cancels) {
+			assertTrue(cancel.get());
+		}
+		pool.shutdown();
+
+		await(() -> waiting() == USERS - 2 * CAPACITY);
+		assertEquals(userIds.subList(CAPACITY, 2 * CAPACITY),
+		             jdbc.queryForList("SELECT user_id FROM user_program_allocation WHERE program_id = ? ORDER BY user_id", Integer.class, programId));
+		assertEquals(0, seatLedger.available(programId));
+		long transactions = batches.count() - batchesBefore;
+		assertTrue(transactions <= 10, CAPACITY + " cancellations took " + transactions + " promotion transactions");
+	}
+
+	@Test
+	void concurrentJoinsArePromotedInTableOrder() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		List<Future<EnrollmentResult>> joins = new ArrayList<>();
+		for (int i = CAPACITY; i < USERS; i++) {
+			int userId = userIds.get(i);
+			joins.add(pool.submit(() -> allocationService.enrollOrWaitlist(userId, programId, null)));
+		}
+		for (Future<EnrollmentResult> join : joins) {
+			assertEquals(EnrollmentResult.WAITLISTED, join.get());
+		}
+		pool.shutdown();
+		List<Integer> order = jdbc.queryForList("SELECT user_id FROM program_waitlist WHERE program_id = ? ORDER BY waitlist_id",
+		                                        Integer.class, programId);
+
+		for (int i = 0; i < CAPACITY / 2; i++) {
+			allocationService.deleteAllocation(userIds.get(i), programId);
+		}
+		await(() -> waiting() == USERS - CAPACITY - CAPACITY / 2);
+		assertEquals(order.subList(CAPACITY / 2, order.size()),
+		             jdbc.queryForList("SELECT user_id FROM program_waitlist WHERE program_id = ? ORDER BY waitlist_id", Integer.class, programId));
+	}
+
+	@Test
+	void adminAndBulkAllocationsDoNotJumpTheWaitlist() throws Exception {
+		int waiter = userIds.get(CAPACITY);
+		assertEquals(EnrollmentResult.WAITLISTED, allocationService.enrollOrWaitlist(waiter, programId, null));
+		allocationService.deleteAllocation(userIds.get(0), programId);
+
+		// the freed seat belongs to the waiter, even before the promoter has handed it over
+		assertEquals(EnrollmentResult.PROGRAM_FULL, allocationService.enroll(userIds.get(CAPACITY + 1), programId, null));
+		BulkAllocationRequest bulk = new BulkAllocationRequest();
+		bulk.setProgramId(programId);
+		bulk.setUserIds(List.of(userIds.get(CAPACITY + 2)));
+		assertEquals(List.of(userIds.get(CAPACITY + 2)), allocationService.bulkAllocate(bulk).getProgramFull());
+		UserTrainingAllocationModel allocation = new UserTrainingAllocationModel();
+		allocation.setUserId(userIds.get(CAPACITY + 3));
+		allocation.setProgramId(programId);
+		assertThrows(IllegalStateException.class, () -> allocationService.saveAllocation(allocation));
+
+		await(() -> isEnrolled(waiter));
+		assertEquals(CAPACITY, allocations(jdbc, programId));
+	}
+
+	private void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for the waitlist promoter");
+			Thread.sleep(20);
+		}
+	}
+
+	private boolean isEnrolled(int userId) {
+		return jdbc.queryForObject("SELECT COUNT(*) FROM user_program_allocation WHERE user_id = ? AND program_id = ?",
+		                           Integer.class, userId, programId) == 1;
+	}
+
+	private int waiting() {
+		return jdbc.queryForObject("SELECT COUNT(*) FROM program_waitlist WHERE program_id = ?", Integer.class, programId);
+	}
+}
@@ -86,6 +86,9 @@ function Login({ setIsAuthenticated, setRole }) {
         // 🔹 Get role and userId from backend response
         const userRole = (data.user && data.user.role) ? data.user.role.toLowerCase() : null;
         const userId = (data.user && data.user.id) ? data.user.id : null;
+        if (data.token) {
+          localStorage.setItem("token", data.token);
+        }
         if (userId) {
           localStorage.setItem("userId", userId);
           console.log("Set userId in localStorage:", localStorage.getItem("userId"));
@@ -174,7 +177,6 @@ function Login({ setIsAuthenticated, setRole }) {
                   required
                 >
                   <option value="user">User</option>
-                  <option value="admin">Admin</option>
                 </select>
               </div>
               <button type="submit" className="login-button w-full">Sign Up</button>
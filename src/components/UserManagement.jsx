@@ -56,7 +56,7 @@ function UserManagement() {
       name: user.name || '',
       email: user.email || '',
       phoneNo: user.phoneNo || '',
-      password: user.password || '',
+      password: '',
       role: user.role || 'USER'
     });
     setShowModal(true);
@@ -238,7 +238,8 @@ function UserManagement() {
                   value={formData.password}
                   onChange={handleChange}
                   className="form-input"
-                  required
+                  placeholder={editingUser ? 'Leave blank to keep the current password' : ''}
+                  required={!editingUser}
                 />
               </div>
 
@@ -10,6 +10,16 @@ const api = axios.create({
   },
 });
 
+// Session token from /api/login, sent on every request (required when the backend runs with app.auth.enabled=true)
+const withToken = (config) => {
+  const token = localStorage.getItem("token");
+  if (token) config.headers.Authorization = `Bearer ${token}`;
+  return config;
+};
+api.interceptors.request.use(withToken);
+// components that call axios directly get it too
+axios.interceptors.request.use(withToken);
+
 // User API
 export const userApi = {
   getAllUsers: () => api.get("/users"),